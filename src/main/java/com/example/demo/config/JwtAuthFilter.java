@@ -1,9 +1,12 @@
 package com.example.demo.config;
 
-import com.example.demo.security.UserDetailsServiceImpl;
+import com.example.demo.security.JwtPrincipalResolver;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.*;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,10 +19,11 @@ import java.io.IOException;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final JwtPrincipalResolver principalResolver;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -31,12 +35,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
 
-        String token = header.substring(7);
-        String username = jwtUtils.extractUsername(token);
+        // Una sola verificación de firma + expiración; un token inválido sigue como anónimo
+        Claims claims;
+        try {
+            claims = jwtUtils.parseClaims(header.substring(7));
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.debug("Token JWT rechazado: {}", ex.getMessage());
+            chain.doFilter(request, response);
+            return;
+        }
+        String username = claims.getSubject();
 
         if (StringUtils.hasText(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails user = userDetailsService.loadUserByUsername(username);
-            if (jwtUtils.isTokenValid(token, user)) {
+            UserDetails user = principalResolver.resolve(claims);
+            if (user != null) {
                 UsernamePasswordAuthenticationToken auth =
                         new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -47,4 +59,4 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -19,8 +19,21 @@ public class JwtUtils {
     @Value("${jwt.expiresMillis:86400000}")
     private long expiresMillis;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    // Clave y parser se construyen una vez (al primer uso) y se reutilizan; ambos son inmutables
+    private volatile Key signingKey;
+    private volatile JwtParser parser;
+
+    /**
+     * Verifica firma y expiración una sola vez y devuelve todos los claims.
+     * Lanza {@link JwtException} si el token no es válido.
+     */
+    public Claims parseClaims(String token) {
+        JwtParser p = parser;
+        if (p == null) {
+            p = Jwts.parserBuilder().setSigningKey(getKey()).build();
+            parser = p;
+        }
+        return p.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(UserDetails user, Map<String, Object> extraClaims) {
@@ -42,33 +55,16 @@ public class JwtUtils {
         return generateToken(user, extraClaims);
     }
 
-    public boolean isTokenValid(String token, UserDetails user) {
-        return extractUsername(token).equals(user.getUsername()) && !isExpired(token);
-    }
-
     public long getExpiresSeconds() {
         return expiresMillis / 1000;
     }
 
-
-    private boolean isExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
-    }
-
-    private <T> T extractClaim(String token, java.util.function.Function<Claims, T> resolver) {
-        return resolver.apply(parseAll(token));
-    }
-
-    private Claims parseAll(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
     private Key getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSigningKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        Key key = signingKey;
+        if (key == null) {
+            key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSigningKey));
+            signingKey = key;
+        }
+        return key;
     }
 }
@@ -0,0 +1,82 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor dedicado a la generación de reportes (agregación, LLM, PDF y SMTP), separado del
+ * executor por defecto de {@code @Async}. La admisión se controla en {@code ReportAdmission}.
+ * <p>
+ * Con {@code spring.threads.virtual.enabled=true} cada reporte corre en un hilo virtual y la
+ * concurrencia hacia DB, LLM y SMTP la limita {@code ReportResourceLimiter}.
+ */
+@Configuration
+public class ReportExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Al declarar otro Executor Boot deja de crear el suyo; se mantiene el executor general
+    // (spring.task.execution.*) para @Async sin calificar y para las respuestas asíncronas de MVC
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder poolBuilder,
+                                                     SimpleAsyncTaskExecutorBuilder virtualBuilder) {
+        return virtualThreads ? virtualBuilder.build() : poolBuilder.build();
+    }
+
+    @Bean(name = "reportExecutor")
+    public AsyncTaskExecutor reportExecutor(@Value("${reports.executor.pool-size:10}") int poolSize,
+                                            @Value("${reports.executor.queue-capacity:100}") int queueCapacity,
+                                            MeterRegistry meterRegistry) {
+        Timer waitTimer = Timer.builder("reports.executor.wait")
+                .description("Tiempo en cola antes de empezar a generar el reporte")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        TaskDecorator recordWait = task -> {
+            long enqueuedAt = System.nanoTime();
+            return () -> {
+                waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                task.run();
+            };
+        };
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("report-");
+            executor.setVirtualThreads(true);
+            executor.setTaskDecorator(recordWait);
+            executor.setTaskTerminationTimeout(60_000);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // core = max: con cola acotada el pool nunca crecería por encima del core
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.setTaskDecorator(recordWait);
+        executor.initialize();
+
+        Gauge.builder("reports.executor.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Reportes en cola")
+                .register(meterRegistry);
+        Gauge.builder("reports.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Reportes en ejecución")
+                .register(meterRegistry);
+        return executor;
+    }
+}
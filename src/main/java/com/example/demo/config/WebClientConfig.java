@@ -1,19 +1,68 @@
 package com.example.demo.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    /**
+     * Pool de conexiones hacia GitHub Models. Reutilizar conexiones evita un handshake TLS por
+     * llamada durante las ráfagas de reportes; las métricas quedan como
+     * {@code reactor.netty.connection.provider.*} con {@code name=github-models}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider githubModelsConnectionProvider(
+            @Value("${llm.http.pool.max-connections:20}") int maxConnections,
+            @Value("${llm.http.pool.pending-acquire-max-count:100}") int pendingAcquireMaxCount,
+            @Value("${llm.http.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${llm.http.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${llm.http.pool.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${llm.http.pool.eviction-interval:30s}") Duration evictionInterval) {
+        return ConnectionProvider.builder("github-models")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // Por debajo del idle timeout del servidor, para no reutilizar conexiones ya cerradas
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictionInterval)
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient githubModelsWebClient(@Value("${github.models.url:https://models.github.ai}") String baseUrl,
-                                           @Value("${github.token:}") String token) {
+    public WebClient githubModelsWebClient(ConnectionProvider githubModelsConnectionProvider,
+                                           @Value("${github.models.url:https://models.github.ai}") String baseUrl,
+                                           @Value("${github.token:}") String token,
+                                           @Value("${llm.http.connect-timeout:3s}") Duration connectTimeout,
+                                           @Value("${llm.http.response-timeout:10s}") Duration responseTimeout,
+                                           @Value("${llm.http.http2:true}") boolean http2) {
+        HttpClient httpClient = HttpClient.create(githubModelsConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                .keepAlive(true)
+                // Solo envía Accept-Encoding: gzip y descomprime la respuesta; el cuerpo de la petición va sin comprimir
+                .compress(true);
+        // HTTP/2 se negocia por ALPN, así que solo aplica sobre TLS; en http plano queda HTTP/1.1
+        if (http2 && baseUrl.startsWith("https://")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
         WebClient.Builder builder = WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .exchangeStrategies(ExchangeStrategies.builder()
                         .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(2 * 1024 * 1024))
                         .build());
@@ -22,4 +71,4 @@ public class WebClientConfig {
         }
         return builder.build();
     }
-}
\ No newline at end of file
+}
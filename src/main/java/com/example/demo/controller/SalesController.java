@@ -1,21 +1,42 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.sales.ExportFormat;
+import com.example.demo.dto.sales.RollupRebuildResponse;
+import com.example.demo.dto.sales.SaleBatchResponse;
+import com.example.demo.dto.sales.SaleCursorPage;
+import com.example.demo.dto.sales.SaleIngestProgress;
 import com.example.demo.dto.sales.SaleRequest;
 import com.example.demo.dto.sales.SaleResponse;
 import com.example.demo.entity.User;
+import com.example.demo.service.sales.SalesExportService;
+import com.example.demo.service.sales.SalesIngestionService;
+import com.example.demo.service.sales.SalesRollupService;
 import com.example.demo.service.sales.SalesService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/sales")
@@ -23,6 +44,10 @@ import java.time.LocalDate;
 public class SalesController {
 
     private final SalesService salesService;
+    private final SalesRollupService rollupService;
+    private final SalesIngestionService ingestionService;
+    private final SalesExportService exportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<SaleResponse> create(@Valid @RequestBody SaleRequest request, Authentication authentication) {
@@ -30,6 +55,25 @@ public class SalesController {
         return ResponseEntity.status(HttpStatus.CREATED).body(salesService.create(request, user));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<SaleBatchResponse> createBatch(@RequestBody List<SaleRequest> requests, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(ingestionService.ingestBatch(requests, user));
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void createStream(HttpServletRequest request, HttpServletResponse response, Authentication authentication)
+            throws IOException {
+        User user = (User) authentication.getPrincipal();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        SaleIngestProgress done = ingestionService.ingestNdjson(request.getInputStream(), user,
+                progress -> writeLine(out, progress));
+        writeLine(out, done);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SaleResponse> findById(@PathVariable String id, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -49,6 +93,51 @@ public class SalesController {
         return ResponseEntity.ok(salesService.list(from, to, branch, pageable, user));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<SaleCursorPage> scroll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String branch,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(salesService.scroll(from, to, branch, after, size, user));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String branch,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        ExportFormat exportFormat = ExportFormat.from(format);
+        String filename = "sales." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                    exportService.export(from, to, branch, exportFormat, user, gzipOut);
+                }
+            } else {
+                exportService.export(from, to, branch, exportFormat, user, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .body(body);
+    }
+
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasAuthority('CENTRAL')")
+    public ResponseEntity<RollupRebuildResponse> rebuildRollup() {
+        return ResponseEntity.ok(rollupService.rebuild());
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<SaleResponse> update(@PathVariable String id,
                                                @Valid @RequestBody SaleRequest request,
@@ -63,4 +152,14 @@ public class SalesController {
         salesService.delete(id, user);
         return ResponseEntity.noContent().build();
     }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.summary.ReportJobStatusResponse;
 import com.example.demo.dto.summary.SalesSummaryPremiumRequest;
 import com.example.demo.dto.summary.SalesSummaryResponse;
+import com.example.demo.dto.summary.WeeklyBatchSummaryRequest;
 import com.example.demo.dto.summary.WeeklySummaryRequest;
 import com.example.demo.entity.User;
 import com.example.demo.service.summary.SummaryService;
@@ -9,12 +11,17 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/sales/summary")
 @RequiredArgsConstructor
@@ -22,6 +29,13 @@ public class SummaryController {
 
     private final SummaryService summaryService;
 
+    @GetMapping("/{requestId}")
+    public ResponseEntity<ReportJobStatusResponse> getStatus(@PathVariable String requestId,
+                                                             Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(summaryService.getStatus(requestId, user));
+    }
+
     @PostMapping("/weekly")
     public ResponseEntity<SalesSummaryResponse> requestWeeklySummary(@Valid @RequestBody WeeklySummaryRequest request,
                                                                      Authentication authentication) {
@@ -30,6 +44,15 @@ public class SummaryController {
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
     }
 
+    @PostMapping("/weekly/batch")
+    @PreAuthorize("hasAuthority('CENTRAL')")
+    public ResponseEntity<List<SalesSummaryResponse>> requestWeeklyBatch(@Valid @RequestBody WeeklyBatchSummaryRequest request,
+                                                                         Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        List<SalesSummaryResponse> responses = summaryService.requestWeeklyBatch(request, user);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(responses);
+    }
+
     @PostMapping("/weekly/premium")
     public ResponseEntity<SalesSummaryResponse> requestPremiumSummary(@Valid @RequestBody SalesSummaryPremiumRequest request,
                                                                       Authentication authentication) {
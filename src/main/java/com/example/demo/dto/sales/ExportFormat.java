@@ -0,0 +1,31 @@
+package com.example.demo.dto.sales;
+
+import java.util.Locale;
+
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String value) {
+        for (ExportFormat f : values()) {
+            if (f.name().equalsIgnoreCase(value)) return f;
+        }
+        throw new IllegalArgumentException("Formato de exportación no soportado: " + (value != null ? value.toLowerCase(Locale.ROOT) : null));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupRebuildResponse {
+    private int rows;
+    private long elapsedMillis;
+}
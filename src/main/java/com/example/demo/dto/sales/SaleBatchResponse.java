@@ -0,0 +1,16 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleBatchResponse {
+    private long received;
+    private long inserted;
+    private long rejected;
+    private List<SaleRowError> errors;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Página de ventas recorrida por cursor. nextCursor es null cuando no hay más resultados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleCursorPage {
+
+    private List<SaleResponse> content;
+    private int size;
+    private String nextCursor;
+}
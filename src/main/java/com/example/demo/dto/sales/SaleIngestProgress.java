@@ -0,0 +1,21 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Línea de progreso de la ingesta NDJSON. Los contadores son acumulados; errors trae solo
+ * las filas rechazadas desde la línea anterior. La última línea llega con status DONE.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleIngestProgress {
+    private String status; // "PROGRESS" | "DONE"
+    private long received;
+    private long inserted;
+    private long rejected;
+    private List<SaleRowError> errors;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+import java.util.Map;
+
+/**
+ * Error de una fila en la ingesta masiva. row empieza en 1.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleRowError {
+    private long row;
+    private String message;
+    private Map<String, Object> details;
+}
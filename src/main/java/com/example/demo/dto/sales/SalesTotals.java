@@ -0,0 +1,14 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+/**
+ * Proyección de SUM(units) y del ingreso total (sumado por venta en centavos); ambos son null cuando el rango no tiene ventas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesTotals {
+    private Long totalUnits;
+    private Double totalRevenue;
+}
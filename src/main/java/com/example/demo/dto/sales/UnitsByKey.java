@@ -0,0 +1,14 @@
+package com.example.demo.dto.sales;
+
+import lombok.*;
+
+/**
+ * Proyección de unidades agrupadas por una clave (SKU o sucursal).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnitsByKey {
+    private String key;
+    private Long units;
+}
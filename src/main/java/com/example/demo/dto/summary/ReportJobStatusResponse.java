@@ -0,0 +1,33 @@
+package com.example.demo.dto.summary;
+
+import com.example.demo.entity.ReportJobStatus;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Estado de una solicitud de reporte y momento en que empezó cada etapa.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJobStatusResponse {
+
+    private String requestId;
+    private ReportJobStatus status;
+    private String branch;
+    private LocalDate from;
+    private LocalDate to;
+    private boolean premium;
+    private int attempts;
+    private String error;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime aggregatingAt;
+    private LocalDateTime summarizingAt;
+    private LocalDateTime renderingAt;
+    private LocalDateTime sendingAt;
+    private LocalDateTime finishedAt;
+}
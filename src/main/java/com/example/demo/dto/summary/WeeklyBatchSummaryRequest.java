@@ -0,0 +1,29 @@
+package com.example.demo.dto.summary;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Resumen semanal de varias sucursales a la vez (solo central): un reporte por sucursal,
+ * con los resúmenes del LLM generados en lote.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WeeklyBatchSummaryRequest {
+
+    private LocalDate from;  // opcional: fecha inicial del rango
+    private LocalDate to;    // opcional: fecha final del rango
+
+    @NotEmpty(message = "Debe indicar al menos una sucursal.")
+    @Size(max = 50, message = "Se permiten como máximo 50 sucursales por solicitud.")
+    private List<@NotBlank(message = "La sucursal no puede estar vacía.") String> branches;
+
+    @NotBlank(message = "El email del destinatario es obligatorio.")
+    @Email(message = "Formato de correo inválido.")
+    private String emailTo;
+}
@@ -0,0 +1,13 @@
+package com.example.demo.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTokenVersion {
+    private Long id;
+    private Long tokenVersion;
+}
@@ -0,0 +1,26 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Totales pre-agregados por (día, sucursal, SKU). Se mantienen con deltas en cada escritura de Sale.
+ */
+@Entity
+@Table(name = "daily_sales_rollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailySalesRollup {
+
+    @EmbeddedId
+    private DailySalesRollupId id;
+
+    @Column(nullable = false)
+    private long units;
+
+    // Céntimos enteros: los deltas +/- se suman sin el error acumulado de un double
+    @Column(nullable = false)
+    private long revenueCents;
+}
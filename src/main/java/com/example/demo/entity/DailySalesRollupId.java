@@ -0,0 +1,24 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesRollupId implements Serializable {
+
+    @Column(nullable = false)
+    private LocalDate saleDay;
+
+    @Column(nullable = false)
+    private String branch;
+
+    @Column(nullable = false)
+    private String sku;
+}
@@ -0,0 +1,33 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resumen del LLM persistido por hash de (modelo, prompt de sistema, prompt de usuario).
+ */
+@Entity
+@Table(name = "llm_summary_cache", indexes = {
+        @Index(name = "idx_llm_summary_cache_created", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LlmSummaryCacheEntry {
+
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String key;
+
+    @Column(nullable = false)
+    private String modelId;
+
+    @Column(nullable = false, length = 8000)
+    private String summary;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,106 @@
+package com.example.demo.entity;
+
+import com.example.demo.event.ReportRequestedEvent;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Solicitud de reporte persistida: sobrevive reinicios y permite consultar su avance.
+ * Cada etapa registra cuándo empezó; {@code updatedAt} sirve de heartbeat del worker.
+ */
+@Entity
+@Table(name = "report_jobs", indexes = {
+        @Index(name = "idx_report_jobs_status_created", columnList = "status, created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJob {
+
+    @Id
+    @Column(name = "request_id", length = 80)
+    private String requestId;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private ReportJobStatus status;
+
+    private String requesterUsername;
+    private String requesterEmail;
+
+    @Enumerated(EnumType.STRING)
+    private Role requesterRole;
+
+    private String branch;
+
+    @Column(name = "from_date", nullable = false)
+    private LocalDate from;
+
+    @Column(name = "to_date", nullable = false)
+    private LocalDate to;
+
+    @Column(nullable = false)
+    private String emailTo;
+
+    private boolean premium;
+    private boolean includeCharts;
+    private boolean attachPdf;
+
+    private int attempts;
+
+    // Instancia que tomó el job
+    private String lockedBy;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+    private LocalDateTime aggregatingAt;
+    private LocalDateTime summarizingAt;
+    private LocalDateTime renderingAt;
+    private LocalDateTime sendingAt;
+    private LocalDateTime finishedAt;
+
+    public static ReportJob queued(ReportRequestedEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        return ReportJob.builder()
+                .requestId(event.getRequestId())
+                .status(ReportJobStatus.QUEUED)
+                .requesterUsername(event.getRequesterUsername())
+                .requesterEmail(event.getRequesterEmail())
+                .requesterRole(event.getRequesterRole())
+                .branch(event.getBranch())
+                .from(event.getFrom())
+                .to(event.getTo())
+                .emailTo(event.getEmailTo())
+                .premium(event.isPremium())
+                .includeCharts(event.isIncludeCharts())
+                .attachPdf(event.isAttachPdf())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    public ReportRequestedEvent toEvent() {
+        return ReportRequestedEvent.builder()
+                .requestId(requestId)
+                .requesterUsername(requesterUsername)
+                .requesterEmail(requesterEmail)
+                .requesterRole(requesterRole)
+                .branch(branch)
+                .from(from)
+                .to(to)
+                .emailTo(emailTo)
+                .premium(premium)
+                .includeCharts(includeCharts)
+                .attachPdf(attachPdf)
+                .build();
+    }
+}
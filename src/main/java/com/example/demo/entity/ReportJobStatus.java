@@ -0,0 +1,15 @@
+package com.example.demo.entity;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum ReportJobStatus {
+    QUEUED, AGGREGATING, SUMMARIZING, RENDERING, SENDING, DONE, FAILED;
+
+    /** Estados en los que un worker tiene el job tomado. */
+    public static final Set<ReportJobStatus> RUNNING = EnumSet.of(AGGREGATING, SUMMARIZING, RENDERING, SENDING);
+
+    public boolean isTerminal() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -5,13 +5,18 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "sales")
+@Table(name = "sales", indexes = {
+        @Index(name = "idx_sales_sold_at_id", columnList = "sold_at DESC, id DESC"),
+        @Index(name = "idx_sales_branch_key_sold_at_id", columnList = "branch_key, sold_at DESC, id DESC"),
+        @Index(name = "idx_sales_sku_sold_at", columnList = "sku, sold_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Sale {
 
     @Id
@@ -30,9 +35,29 @@ public class Sale {
     @Column(nullable = false)
     private String branch;
 
+    // Sucursal en minúsculas: permite filtrar por igualdad indexable en vez de LOWER(branch)
+    @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
+    private String branchKey;
+
     @Column(nullable = false)
     private LocalDateTime soldAt;
 
     @Column(nullable = false)
     private String createdBy;
+
+    public void setBranch(String branch) {
+        this.branch = branch;
+        this.branchKey = normalizeBranch(branch);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalize() {
+        branchKey = normalizeBranch(branch);
+    }
+
+    public static String normalizeBranch(String branch) {
+        return branch != null ? branch.toLowerCase(Locale.ROOT) : null;
+    }
 }
@@ -46,6 +46,10 @@ public class User implements UserDetails {
     private Boolean credentialsExpired = false;
     private Boolean enable = true;
 
+    // Se incrementa para invalidar los tokens ya emitidos (claim "ver")
+    @Column(nullable = false)
+    private Long tokenVersion = 0L;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -1,35 +1,104 @@
 package com.example.demo.event;
 
 import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.entity.ReportJobStatus;
 import com.example.demo.service.mail.MailService;
+import com.example.demo.service.mail.RenderedReport;
 import com.example.demo.service.sales.SalesAggregationService;
-import com.example.demo.service.summary.LlmClient;
+import com.example.demo.service.summary.LlmSummaryBatcher;
+import com.example.demo.service.summary.ReportAdmission;
+import com.example.demo.service.summary.ReportCoalescer;
+import com.example.demo.service.summary.ReportJobLease;
+import com.example.demo.service.summary.ReportJobService;
+import com.example.demo.service.summary.ReportResourceLimiter;
+import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import static com.example.demo.service.summary.ReportResourceLimiter.Resource.DB;
+import static com.example.demo.service.summary.ReportResourceLimiter.Resource.LLM;
+import static com.example.demo.service.summary.ReportResourceLimiter.Resource.SMTP;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ReportRequestedListener {
 
     private final SalesAggregationService aggregationService;
-    private final LlmClient llmClient;
+    private final LlmSummaryBatcher summaryBatcher;
     private final MailService mailService;
+    private final ReportAdmission reportAdmission;
+    private final ReportResourceLimiter resourceLimiter;
+    private final ReportJobService jobService;
+    private final ReportCoalescer coalescer;
 
-    @Async
+    @Async("reportExecutor")
     @EventListener
     public void handleReportRequest(ReportRequestedEvent event) {
-        log.info("Procesando solicitud de resumen {} para sucursal {}", event.getRequestId(), event.getBranch());
         try {
-            SalesAggregates aggregates = aggregationService.calculateAggregates(event.getFrom(), event.getTo(), event.getBranch());
-            String summaryText = llmClient.generateSummary(aggregates, event.getBranch(), event.getFrom(), event.getTo());
-            mailService.sendSummaryEmail(event, aggregates, summaryText);
+            jobService.claim(event.getRequestId()).ifPresentOrElse(
+                    lease -> generate(event, lease),
+                    () -> log.info("El resumen {} ya fue tomado por otro worker", event.getRequestId()));
+        } finally {
+            reportAdmission.release();
+        }
+    }
+
+    /** Procesa un job ya tomado por {@code ReportJobPoller}; el permiso de admisión ya fue reservado. */
+    public void processClaimed(ReportRequestedEvent event, ReportJobLease lease) {
+        try {
+            generate(event, lease);
+        } finally {
+            reportAdmission.release();
+        }
+    }
+
+    private void generate(ReportRequestedEvent event, ReportJobLease lease) {
+        String requestId = event.getRequestId();
+        log.info("Procesando solicitud de resumen {} para sucursal {}", requestId, event.getBranch());
+        RenderedReport report = null;
+        try {
+            // Solicitudes idénticas en curso comparten agregación, resumen y render; el envío es por destinatario
+            boolean[] leader = new boolean[1];
+            report = coalescer.render(event, () -> {
+                leader[0] = true;
+                SalesAggregates aggregates = resourceLimiter.call(DB,
+                        () -> aggregationService.calculateAggregates(event.getFrom(), event.getTo(), event.getBranch()));
+                jobService.advance(lease, ReportJobStatus.SUMMARIZING);
+                String summaryText = resourceLimiter.call(LLM,
+                        () -> summaryBatcher.generateSummary(aggregates, event.getBranch(), event.getFrom(), event.getTo(),
+                                event.isPremium()));
+                jobService.advance(lease, ReportJobStatus.RENDERING);
+                return mailService.render(event, aggregates, summaryText);
+            });
+            // Un seguidor esperó el resultado del líder: su job avanza a la etapa que ese trabajo completó
+            if (!leader[0] && !jobService.advance(lease, ReportJobStatus.RENDERING)) {
+                log.warn("El resumen {} pasó a otro worker; no se envía desde aquí", requestId);
+                return;
+            }
+            // Si el job se reencoló y lo tomó otro worker, ese worker envía el correo
+            if (!jobService.advance(lease, ReportJobStatus.SENDING)) {
+                log.warn("El resumen {} pasó a otro worker; no se envía desde aquí", requestId);
+                return;
+            }
+            MimeMessage message = mailService.buildSummaryEmail(report, event.getEmailTo(), requestId);
+            resourceLimiter.run(SMTP, () -> mailService.send(message, requestId));
+            if (!jobService.complete(lease)) {
+                log.warn("El resumen {} se envió, pero el job ya pertenecía a otro worker", requestId);
+            }
         } catch (Exception ex) {
-            log.error("Error generando el resumen {}", event.getRequestId(), ex);
-            mailService.sendFailureNotification(event, ex.getMessage());
+            log.error("Error generando el resumen {}", requestId, ex);
+            if (jobService.fail(lease, ex.getMessage())) {
+                resourceLimiter.run(SMTP, () -> mailService.sendFailureNotification(event, ex.getMessage()));
+            }
+        } finally {
+            jobService.untrack(lease);
+            if (report != null) {
+                report.release();
+            }
         }
     }
-}
\ No newline at end of file
+}
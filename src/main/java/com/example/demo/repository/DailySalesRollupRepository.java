@@ -0,0 +1,78 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.sales.SalesTotals;
+import com.example.demo.dto.sales.UnitsByKey;
+import com.example.demo.entity.DailySalesRollup;
+import com.example.demo.entity.DailySalesRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, DailySalesRollupId> {
+
+    // SQL nativo: la versión JPQL genera un CAST de parámetro que H2 no acepta
+    @Modifying
+    @Query(value = """
+           UPDATE daily_sales_rollup
+           SET units = units + :units, revenue_cents = revenue_cents + :revenueCents
+           WHERE sale_day = :day AND branch = :branch AND sku = :sku
+           """, nativeQuery = true)
+    int applyDelta(@Param("day") LocalDate day,
+                   @Param("branch") String branch,
+                   @Param("sku") String sku,
+                   @Param("units") long units,
+                   @Param("revenueCents") long revenueCents);
+
+    @Modifying
+    @Query(value = """
+           INSERT INTO daily_sales_rollup (sale_day, branch, sku, units, revenue_cents)
+           SELECT CAST(s.sold_at AS DATE), s.branch, s.sku, SUM(s.units),
+                  SUM(CAST(ROUND(s.units * s.price * 100) AS BIGINT))
+           FROM sales s
+           GROUP BY CAST(s.sold_at AS DATE), s.branch, s.sku
+           """, nativeQuery = true)
+    int rebuildFromSales();
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM daily_sales_rollup)", nativeQuery = true)
+    boolean hasRows();
+
+    // branch debe llegar en minúsculas o null para no filtrar
+    @Query("""
+           SELECT new com.example.demo.dto.sales.SalesTotals(SUM(r.units), SUM(r.revenueCents) / 100.0)
+           FROM DailySalesRollup r
+           WHERE r.id.saleDay BETWEEN :from AND :to
+             AND (:branch IS NULL OR LOWER(r.id.branch) = :branch)
+           """)
+    SalesTotals sumTotals(@Param("from") LocalDate from,
+                          @Param("to") LocalDate to,
+                          @Param("branch") String branch);
+
+    // HAVING descarta claves que quedaron en cero tras eliminar ventas
+    @Query("""
+           SELECT new com.example.demo.dto.sales.UnitsByKey(r.id.sku, SUM(r.units))
+           FROM DailySalesRollup r
+           WHERE r.id.saleDay BETWEEN :from AND :to
+             AND (:branch IS NULL OR LOWER(r.id.branch) = :branch)
+           GROUP BY r.id.sku
+           HAVING SUM(r.units) > 0
+           """)
+    List<UnitsByKey> sumUnitsBySku(@Param("from") LocalDate from,
+                                   @Param("to") LocalDate to,
+                                   @Param("branch") String branch);
+
+    @Query("""
+           SELECT new com.example.demo.dto.sales.UnitsByKey(r.id.branch, SUM(r.units))
+           FROM DailySalesRollup r
+           WHERE r.id.saleDay BETWEEN :from AND :to
+             AND (:branch IS NULL OR LOWER(r.id.branch) = :branch)
+           GROUP BY r.id.branch
+           HAVING SUM(r.units) > 0
+           """)
+    List<UnitsByKey> sumUnitsByBranch(@Param("from") LocalDate from,
+                                      @Param("to") LocalDate to,
+                                      @Param("branch") String branch);
+}
@@ -0,0 +1,21 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.LlmSummaryCacheEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LlmSummaryCacheRepository extends JpaRepository<LlmSummaryCacheEntry, String> {
+
+    @Modifying
+    @Query("DELETE FROM LlmSummaryCacheEntry e WHERE e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+
+    @Query("SELECT e.key FROM LlmSummaryCacheEntry e ORDER BY e.createdAt ASC")
+    List<String> findOldestKeys(Pageable limit);
+}
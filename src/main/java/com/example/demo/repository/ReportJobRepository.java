@@ -0,0 +1,99 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ReportJob;
+import com.example.demo.entity.ReportJobStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReportJobRepository extends JpaRepository<ReportJob, String> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): varias instancias reparten la cola sin bloquearse entre sí
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+           SELECT j
+           FROM ReportJob j
+           WHERE j.status = com.example.demo.entity.ReportJobStatus.QUEUED
+             AND j.createdAt <= :queuedBefore
+           ORDER BY j.createdAt ASC
+           """)
+    List<ReportJob> lockQueued(@Param("queuedBefore") LocalDateTime queuedBefore, Pageable limit);
+
+    // SELECT ... FOR UPDATE: la transición se decide con la fila bloqueada frente a recoverStale y otros workers
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ReportJob j WHERE j.requestId = :id")
+    Optional<ReportJob> findForUpdate(@Param("id") String requestId);
+
+    // Toma atómica de un job concreto: solo una instancia obtiene 1 fila actualizada
+    @Modifying
+    @Query("""
+           UPDATE ReportJob j
+           SET j.status = com.example.demo.entity.ReportJobStatus.AGGREGATING,
+               j.attempts = j.attempts + 1,
+               j.lockedBy = :owner,
+               j.aggregatingAt = :now,
+               j.updatedAt = :now
+           WHERE j.requestId = :id
+             AND j.status = com.example.demo.entity.ReportJobStatus.QUEUED
+           """)
+    int claim(@Param("id") String requestId, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    // Heartbeat: solo cuenta si el job sigue en curso bajo la misma toma (instancia + intento)
+    @Modifying
+    @Query("""
+           UPDATE ReportJob j
+           SET j.updatedAt = :now
+           WHERE j.requestId = :id
+             AND j.lockedBy = :owner
+             AND j.attempts = :attempt
+             AND j.status IN :running
+           """)
+    int touch(@Param("id") String requestId,
+              @Param("owner") String owner,
+              @Param("attempt") int attempt,
+              @Param("running") Collection<ReportJobStatus> running,
+              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+           UPDATE ReportJob j
+           SET j.status = com.example.demo.entity.ReportJobStatus.QUEUED,
+               j.lockedBy = NULL,
+               j.updatedAt = :now
+           WHERE j.status IN :running
+             AND j.updatedAt < :staleBefore
+             AND j.attempts < :maxAttempts
+           """)
+    int requeueStale(@Param("running") Collection<ReportJobStatus> running,
+                     @Param("staleBefore") LocalDateTime staleBefore,
+                     @Param("maxAttempts") int maxAttempts,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+           UPDATE ReportJob j
+           SET j.status = com.example.demo.entity.ReportJobStatus.FAILED,
+               j.errorMessage = 'Se agotaron los reintentos',
+               j.finishedAt = :now,
+               j.updatedAt = :now
+           WHERE j.status IN :running
+             AND j.updatedAt < :staleBefore
+             AND j.attempts >= :maxAttempts
+           """)
+    int failStale(@Param("running") Collection<ReportJobStatus> running,
+                  @Param("staleBefore") LocalDateTime staleBefore,
+                  @Param("maxAttempts") int maxAttempts,
+                  @Param("now") LocalDateTime now);
+}
@@ -1,12 +1,20 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.sales.SalesTotals;
+import com.example.demo.dto.sales.UnitsByKey;
 import com.example.demo.entity.Sale;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SalesRepository extends JpaRepository<Sale, String> {
 
@@ -19,4 +27,96 @@ public interface SalesRepository extends JpaRepository<Sale, String> {
     List<Sale> findByDateRange(@Param("from") LocalDateTime from,
                                @Param("to") LocalDateTime to);
 
-}
\ No newline at end of file
+    // Listado paginado en base de datos: el orden y el tamaño de página vienen en el Pageable
+    Page<Sale> findBySoldAtBetween(LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    // branchKey es la sucursal normalizada con Sale.normalizeBranch
+    Page<Sale> findBySoldAtBetweenAndBranchKey(LocalDateTime from, LocalDateTime to, String branchKey, Pageable pageable);
+
+    // Paginación por cursor (keyset): recorre el índice (sold_at DESC, id DESC) a partir de la última clave vista.
+    // soldAt <= cursor es redundante con el OR, pero es la cota que el planner usa para empezar el recorrido
+    // en el cursor en lugar de filtrar desde el inicio del rango
+    @Query("""
+           SELECT s
+           FROM Sale s
+           WHERE s.soldAt BETWEEN :from AND :to
+             AND s.soldAt <= :cursorSoldAt
+             AND (s.soldAt < :cursorSoldAt OR (s.soldAt = :cursorSoldAt AND s.id < :cursorId))
+           ORDER BY s.soldAt DESC, s.id DESC
+           """)
+    List<Sale> findWindow(@Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to,
+                          @Param("cursorSoldAt") LocalDateTime cursorSoldAt,
+                          @Param("cursorId") String cursorId,
+                          Pageable limit);
+
+    // branch debe llegar normalizado con Sale.normalizeBranch
+    @Query("""
+           SELECT s
+           FROM Sale s
+           WHERE s.soldAt BETWEEN :from AND :to
+             AND s.branchKey = :branch
+             AND s.soldAt <= :cursorSoldAt
+             AND (s.soldAt < :cursorSoldAt OR (s.soldAt = :cursorSoldAt AND s.id < :cursorId))
+           ORDER BY s.soldAt DESC, s.id DESC
+           """)
+    List<Sale> findWindowByBranch(@Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to,
+                                  @Param("branch") String branch,
+                                  @Param("cursorSoldAt") LocalDateTime cursorSoldAt,
+                                  @Param("cursorId") String cursorId,
+                                  Pageable limit);
+
+    // Agregaciones en base de datos; branch debe llegar normalizado o null para no filtrar.
+    // El ingreso se redondea a centavos por venta, igual que el rollup diario, para que ambos sumen lo mismo
+    @Query("""
+           SELECT new com.example.demo.dto.sales.SalesTotals(SUM(s.units), SUM(ROUND(s.units * s.price * 100, 0)) / 100.0)
+           FROM Sale s
+           WHERE s.soldAt BETWEEN :from AND :to
+             AND (:branch IS NULL OR s.branchKey = :branch)
+           """)
+    SalesTotals sumTotals(@Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to,
+                          @Param("branch") String branch);
+
+    @Query("""
+           SELECT new com.example.demo.dto.sales.UnitsByKey(s.sku, SUM(s.units))
+           FROM Sale s
+           WHERE s.soldAt BETWEEN :from AND :to
+             AND (:branch IS NULL OR s.branchKey = :branch)
+           GROUP BY s.sku
+           """)
+    List<UnitsByKey> sumUnitsBySku(@Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("branch") String branch);
+
+    @Query("""
+           SELECT new com.example.demo.dto.sales.UnitsByKey(s.branch, SUM(s.units))
+           FROM Sale s
+           WHERE s.soldAt BETWEEN :from AND :to
+             AND (:branch IS NULL OR s.branchKey = :branch)
+           GROUP BY s.branch
+           """)
+    List<UnitsByKey> sumUnitsByBranch(@Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("branch") String branch);
+
+    // Exportación: se recorre con cursor JDBC (fetch size) en vez de materializar la lista completa
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+           SELECT s
+           FROM Sale s
+           WHERE s.soldAt BETWEEN :from AND :to
+             AND (:branch IS NULL OR s.branchKey = :branch)
+           ORDER BY s.soldAt ASC, s.id ASC
+           """)
+    Stream<Sale> streamByDateRange(@Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("branch") String branch);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM sales)", nativeQuery = true)
+    boolean hasRows();
+}
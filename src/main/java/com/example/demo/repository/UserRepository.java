@@ -1,11 +1,30 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.user.UserTokenVersion;
 import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    // Usuarios que pueden autenticarse, con la versión de token vigente
+    @Query("""
+           SELECT new com.example.demo.dto.user.UserTokenVersion(u.id, u.tokenVersion)
+           FROM User u
+           WHERE u.enable = true AND u.locked = false AND u.expired = false
+           """)
+    List<UserTokenVersion> findActiveTokenVersions();
+
+    @Query("""
+           SELECT new com.example.demo.dto.user.UserTokenVersion(u.id, u.tokenVersion)
+           FROM User u
+           WHERE u.id = :id AND u.enable = true AND u.locked = false AND u.expired = false
+           """)
+    Optional<UserTokenVersion> findActiveTokenVersion(@Param("id") Long id);
 }
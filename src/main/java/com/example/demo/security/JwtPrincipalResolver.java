@@ -0,0 +1,57 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Construye el principal a partir de un JWT ya verificado.
+ * <ul>
+ *   <li>{@code database}: carga el {@link User} (vía {@link PrincipalCache}).</li>
+ *   <li>{@code claims}: arma un {@link User} transitorio con los claims, sin consultar la base;
+ *       la revocación se valida contra {@link UserRevocationRegistry}.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtPrincipalResolver {
+
+    private final PrincipalCache principalCache;
+    private final UserRevocationRegistry revocationRegistry;
+
+    @Value("${security.jwt.principal-mode:database}")
+    private String principalMode;
+
+    /** Devuelve el principal o {@code null} si el token no corresponde a un usuario vigente. */
+    public UserDetails resolve(Claims claims) {
+        if (!"claims".equalsIgnoreCase(principalMode)) {
+            return principalCache.get(claims.getSubject());
+        }
+        return fromClaims(claims);
+    }
+
+    private UserDetails fromClaims(Claims claims) {
+        Long userId = claims.get("uid", Long.class);
+        Long version = claims.get("ver", Long.class);
+        String role = claims.get("role", String.class);
+        // Tokens emitidos antes de este modo no traen uid/ver: se rechazan y el cliente vuelve a iniciar sesión
+        if (userId == null || version == null || !Role.contiene(role)) {
+            return null;
+        }
+        if (!revocationRegistry.isCurrent(userId, version)) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(claims.getSubject());
+        user.setEmail(claims.get("email", String.class));
+        user.setRole(Role.valueOf(role.toUpperCase()));
+        user.setBranch(claims.get("branch", String.class));
+        user.setTokenVersion(version);
+        return user;
+    }
+}
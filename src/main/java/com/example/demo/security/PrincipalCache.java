@@ -0,0 +1,49 @@
+package com.example.demo.security;
+
+import com.example.demo.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Principales resueltos por el filtro JWT, con TTL corto para no consultar la base en cada request.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final Cache<String, UserDetails> cache;
+
+    public PrincipalCache(UserDetailsServiceImpl userDetailsService,
+                          @Value("${security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${security.principal-cache.ttl:30s}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtPrincipals");
+    }
+
+    /** Devuelve el principal del usuario o {@code null} si ya no existe. */
+    public UserDetails get(String username) {
+        try {
+            return cache.get(username, userDetailsService::loadUserByUsername);
+        } catch (UsernameNotFoundException ex) {
+            return null;
+        }
+    }
+
+    public void evictUser(Long userId) {
+        cache.asMap().values().removeIf(u -> u instanceof User user && userId.equals(user.getId()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.security;
+
+import com.example.demo.dto.user.UserTokenVersion;
+import com.example.demo.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Versión de token vigente de cada usuario activo, para el modo de autenticación por claims.
+ * La instantánea se recarga periódicamente: un usuario eliminado, bloqueado o con la versión
+ * incrementada deja de autenticar como máximo tras {@code security.jwt.revocation-refresh-ms}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserRevocationRegistry {
+
+    private static final long INACTIVE = -1L;
+
+    private final UserRepository userRepository;
+
+    @Value("${security.jwt.principal-mode:database}")
+    private String principalMode;
+
+    private volatile Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        Long current = versions.get(userId);
+        if (current == null) {
+            // Usuario creado después de la última recarga: una consulta y queda registrado (activo o no)
+            current = userRepository.findActiveTokenVersion(userId)
+                    .map(UserTokenVersion::getTokenVersion)
+                    .orElse(INACTIVE);
+            versions.putIfAbsent(userId, current);
+        }
+        return current != INACTIVE && current == tokenVersion;
+    }
+
+    public void revoke(Long userId) {
+        versions.put(userId, INACTIVE);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation-refresh-ms:15000}")
+    public void refresh() {
+        if (!"claims".equalsIgnoreCase(principalMode)) {
+            return;
+        }
+        versions = userRepository.findActiveTokenVersions().stream()
+                .collect(Collectors.toConcurrentMap(UserTokenVersion::getId, UserTokenVersion::getTokenVersion));
+        log.debug("Versiones de token recargadas: {} usuarios activos", versions.size());
+    }
+}
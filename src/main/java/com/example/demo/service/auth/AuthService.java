@@ -75,6 +75,9 @@ public class AuthService {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", u.getRole().name());
         claims.put("branch", u.getBranch());
+        claims.put("uid", u.getId());
+        claims.put("email", u.getEmail());
+        claims.put("ver", u.getTokenVersion());
 
         String token = jwtUtils.generateToken(u, claims);
         return new JwtAuthResponse(token, jwtUtils.getExpiresSeconds(), u.getRole().name(), u.getBranch());
@@ -0,0 +1,168 @@
+package com.example.demo.service.mail;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Gráfico de barras del reporte premium dibujado en proceso (Java2D, PNG). Reemplaza la URL de
+ * quickchart.io: los servidores no tienen salida a internet y openhtmltopdf bloqueaba el worker
+ * descargando la imagen. Los PNG se cachean por los valores graficados.
+ */
+@Component
+public class ChartRenderer {
+
+    public static final String CONTENT_TYPE = "image/png";
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 300;
+
+    private static final String[] LABELS = {"Unidades Vendidas", "Ingresos (S/)"};
+    private static final Color[] COLORS = {new Color(0x6B46C1), new Color(0x805AD5)};
+    private static final Color TEXT = new Color(0x1E293B);
+    private static final Color MUTED = new Color(0x64748B);
+    private static final Color GRID = new Color(0xE2E8F0);
+    private static final Font TITLE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 16);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private static final int GRID_LINES = 4;
+
+    private final Cache<Key, byte[]> cache;
+    private final Timer renderTimer;
+
+    public ChartRenderer(@Value("${report.chart.cache.max-size:500}") long maxSize,
+                         MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reportCharts");
+        this.renderTimer = Timer.builder("report.chart.render")
+                .description("Tiempo de dibujo de gráficos de reportes (sin contar aciertos de caché)")
+                .register(meterRegistry);
+    }
+
+    /** PNG del gráfico de unidades e ingresos. */
+    public byte[] render(SalesAggregates aggregates) {
+        Key key = Key.of(aggregates);
+        return cache.get(key, k -> renderTimer.record(() -> draw(k)));
+    }
+
+    /** El PNG como {@code data:} URI, para HTML que no admite adjuntos (el PDF). */
+    public static String toDataUri(byte[] png) {
+        return "data:" + CONTENT_TYPE + ";base64," + Base64.getEncoder().encodeToString(png);
+    }
+
+    private static byte[] draw(Key key) {
+        double[] values = {key.totalUnits(), key.revenueCents() / 100.0};
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+
+            g.setFont(TITLE_FONT);
+            g.setColor(TEXT);
+            drawCentered(g, "Resumen de Ventas", WIDTH / 2, 28);
+
+            int left = 70;
+            int right = WIDTH - 20;
+            int top = 50;
+            int bottom = HEIGHT - 40;
+            double max = niceMax(Math.max(values[0], values[1]));
+
+            // Eje Y desde cero con líneas guía
+            g.setFont(LABEL_FONT);
+            FontMetrics metrics = g.getFontMetrics();
+            for (int i = 0; i <= GRID_LINES; i++) {
+                double value = max * i / GRID_LINES;
+                int y = bottom - (int) Math.round((bottom - top) * (double) i / GRID_LINES);
+                g.setColor(GRID);
+                g.drawLine(left, y, right, y);
+                String label = format(value);
+                g.setColor(MUTED);
+                g.drawString(label, left - 8 - metrics.stringWidth(label), y + metrics.getAscent() / 2 - 1);
+            }
+
+            int slot = (right - left) / values.length;
+            int barWidth = slot / 2;
+            for (int i = 0; i < values.length; i++) {
+                int barHeight = (int) Math.round((bottom - top) * values[i] / max);
+                int x = left + slot * i + (slot - barWidth) / 2;
+                g.setColor(COLORS[i]);
+                g.fillRect(x, bottom - barHeight, barWidth, barHeight);
+                g.setColor(TEXT);
+                drawCentered(g, format(values[i]), x + barWidth / 2, bottom - barHeight - 6);
+                g.setColor(MUTED);
+                drawCentered(g, LABELS[i], x + barWidth / 2, bottom + 20);
+            }
+            g.setColor(MUTED);
+            g.setStroke(new BasicStroke(1f));
+            g.drawLine(left, bottom, right, bottom);
+        } finally {
+            g.dispose();
+        }
+        return encode(image);
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024)) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al generar el gráfico", e);
+        }
+    }
+
+    private static void drawCentered(Graphics2D g, String text, int centerX, int baseline) {
+        g.drawString(text, centerX - g.getFontMetrics().stringWidth(text) / 2, baseline);
+    }
+
+    // Tope del eje en 1, 2 o 5 × 10^n, como haría Chart.js con beginAtZero
+    private static double niceMax(double value) {
+        if (value <= 0) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        for (double step : new double[]{1, 2, 5, 10}) {
+            if (step * magnitude >= value) {
+                return step * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value)
+                ? String.format(Locale.ROOT, "%,.0f", value)
+                : String.format(Locale.ROOT, "%,.2f", value);
+    }
+
+    /** Valores que se grafican; los ingresos en céntimos para no depender de la representación del double. */
+    private record Key(int totalUnits, long revenueCents) {
+
+        static Key of(SalesAggregates aggregates) {
+            return new Key(aggregates.getTotalUnits(), Math.round(aggregates.getTotalRevenue() * 100));
+        }
+    }
+}
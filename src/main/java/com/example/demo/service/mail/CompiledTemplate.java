@@ -0,0 +1,155 @@
+package com.example.demo.service.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla compilada una sola vez: los fragmentos estáticos quedan listos y por reporte solo se
+ * llenan los huecos. {@code {{nombre}}} se escapa como HTML (en plantillas HTML) y
+ * {@code {{{nombre}}}} se inserta tal cual, para fragmentos ya generados. Un valor {@link Fragment}
+ * (otra plantilla con sus valores) se expande en el mismo resultado, sin armar un texto intermedio.
+ * <p>
+ * En HTML los caracteres fuera de Latin-1 (emojis) se escriben como referencias numéricas, así el
+ * resultado se guarda con un byte por carácter en lugar de dos.
+ */
+public final class CompiledTemplate {
+
+    private final String[] literals; // literals[i] va antes de slots[i]; el último cierra la plantilla
+    private final String[] slots;
+    private final boolean[] raw;
+    private final boolean html;
+
+    private CompiledTemplate(List<String> literals, List<String> slots, List<Boolean> raw, boolean html) {
+        this.literals = literals.toArray(String[]::new);
+        this.slots = slots.toArray(String[]::new);
+        this.raw = new boolean[raw.size()];
+        for (int i = 0; i < this.raw.length; i++) {
+            this.raw[i] = raw.get(i);
+        }
+        this.html = html;
+    }
+
+    public static CompiledTemplate html(String source) {
+        return compile(source, true);
+    }
+
+    public static CompiledTemplate text(String source) {
+        return compile(source, false);
+    }
+
+    private static CompiledTemplate compile(String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = source.indexOf("{{", from)) >= 0) {
+            boolean triple = source.startsWith("{{{", open);
+            String closing = triple ? "}}}" : "}}";
+            int start = open + (triple ? 3 : 2);
+            int close = source.indexOf(closing, start);
+            if (close < 0) {
+                throw new IllegalArgumentException("Hueco sin cerrar en la plantilla, posición " + open);
+            }
+            literals.add(literal(source.substring(from, open), html));
+            slots.add(source.substring(start, close).trim());
+            raw.add(triple);
+            from = close + closing.length();
+        }
+        literals.add(literal(source.substring(from), html));
+        return new CompiledTemplate(literals, slots, raw, html);
+    }
+
+    private static String literal(String text, boolean html) {
+        return html ? encodeNonLatin1(text) : text;
+    }
+
+    public String render(Map<String, ?> values) {
+        List<String> parts = new ArrayList<>(literals.length + slots.length + 8);
+        collect(values, parts);
+        // String.join reserva el resultado con su tamaño exacto: sin crecer ni copiar un StringBuilder
+        return String.join("", parts);
+    }
+
+    /** Esta plantilla con sus valores, para usarla como valor de un hueco de otra. */
+    public Fragment with(Map<String, ?> values) {
+        return new Fragment(this, values);
+    }
+
+    private void collect(Map<String, ?> values, List<String> parts) {
+        for (int i = 0; i < slots.length; i++) {
+            parts.add(literals[i]);
+            Object value = values.get(slots[i]);
+            if (value == null && !values.containsKey(slots[i])) {
+                throw new IllegalArgumentException("Falta el valor de la plantilla: " + slots[i]);
+            }
+            if (value instanceof Fragment fragment) {
+                fragment.template().collect(fragment.values(), parts);
+            } else {
+                String text = value == null ? "" : value.toString();
+                parts.add(html && !raw[i] ? escape(text) : text);
+            }
+        }
+        parts.add(literals[slots.length]);
+    }
+
+    public record Fragment(CompiledTemplate template, Map<String, ?> values) {
+    }
+
+    /**
+     * Escapa los mismos caracteres que {@code HtmlUtils.htmlEscape(texto, "UTF-8")}, pasa los saltos
+     * de línea a {@code <br/>} y los caracteres fuera de Latin-1 a referencias numéricas. Si no hay
+     * nada que escapar devuelve el mismo texto sin copiarlo.
+     */
+    static String escape(String text) {
+        int i = 0;
+        while (i < text.length() && !needsEscape(text.charAt(i))) {
+            i++;
+        }
+        if (i == text.length()) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length() + 16).append(text, 0, i);
+        while (i < text.length()) {
+            int c = text.codePointAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                case '\n' -> out.append("<br/>");
+                case '\r' -> { }
+                default -> {
+                    if (c > 0xFF) {
+                        out.append("&#").append(c).append(';');
+                    } else {
+                        out.append((char) c);
+                    }
+                }
+            }
+            i += Character.charCount(c);
+        }
+        return out.toString();
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == '<' || c == '>' || c == '&' || c == '"' || c == '\'' || c == '\n' || c == '\r' || c > 0xFF;
+    }
+
+    private static String encodeNonLatin1(String text) {
+        if (text.chars().allMatch(c -> c <= 0xFF)) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        text.codePoints().forEach(c -> {
+            if (c > 0xFF) {
+                out.append("&#").append(c).append(';');
+            } else {
+                out.appendCodePoint(c);
+            }
+        });
+        return out.toString();
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.demo.service.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cola acotada de correos salientes. Cada hilo despachador mantiene su propia conexión SMTP
+ * autenticada y la reutiliza para todos los correos que toma de la cola (en lotes de hasta
+ * {@code mail.dispatch.batch-size}), en lugar de abrir conexión, STARTTLS y login por correo.
+ * La conexión se cierra tras {@code mail.dispatch.idle-timeout} sin tráfico. Los fallos
+ * transitorios (red, códigos 4xx) se reintentan con backoff; los permanentes fallan al instante.
+ */
+@Component
+@Slf4j
+public class MailDispatcher {
+
+    private final JavaMailSender mailSender;
+    private final BlockingQueue<Outgoing> queue;
+    private final int batchSize;
+    private final Duration offerTimeout;
+    private final Duration sendTimeout;
+    private final Duration idleTimeout;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retryScheduler;
+    // Correos esperando su reintento, para fallarlos si la aplicación se detiene
+    private final Set<Outgoing> awaitingRetry = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    private final Timer sentLatency;
+    private final Timer failedLatency;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter retries;
+    private final Counter connections;
+
+    public MailDispatcher(JavaMailSender mailSender,
+                          @Value("${mail.dispatch.queue-capacity:500}") int queueCapacity,
+                          @Value("${mail.dispatch.batch-size:20}") int batchSize,
+                          @Value("${mail.dispatch.connections:1}") int connections,
+                          @Value("${mail.dispatch.offer-timeout:10s}") Duration offerTimeout,
+                          @Value("${mail.dispatch.send-timeout:5m}") Duration sendTimeout,
+                          @Value("${mail.dispatch.idle-timeout:30s}") Duration idleTimeout,
+                          @Value("${mail.dispatch.retry.max-retries:3}") int maxRetries,
+                          @Value("${mail.dispatch.retry.min-backoff:1s}") Duration minBackoff,
+                          @Value("${mail.dispatch.retry.max-backoff:30s}") Duration maxBackoff,
+                          @Value("${mail.dispatch.retry.jitter:0.5}") double jitter,
+                          MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.offerTimeout = offerTimeout;
+        this.sendTimeout = sendTimeout;
+        this.idleTimeout = idleTimeout;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+
+        this.sentLatency = latency(meterRegistry, "sent");
+        this.failedLatency = latency(meterRegistry, "failed");
+        this.batchTimer = Timer.builder("mail.dispatch.batch")
+                .description("Tiempo de envío de un lote por una misma conexión SMTP")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("mail.dispatch.batch.size")
+                .description("Correos enviados por lote")
+                .register(meterRegistry);
+        this.retries = Counter.builder("mail.dispatch.retries")
+                .description("Reintentos de correos tras fallos transitorios")
+                .register(meterRegistry);
+        this.connections = Counter.builder("mail.dispatch.connections")
+                .description("Conexiones SMTP abiertas (handshake y login)")
+                .register(meterRegistry);
+        Gauge.builder("mail.dispatch.queued", queue, BlockingQueue::size)
+                .description("Correos esperando en la cola de envío")
+                .register(meterRegistry);
+
+        int threads = Math.max(1, connections);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("mail-retry-"));
+        this.workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("mail-dispatch-"));
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::dispatchLoop);
+        }
+    }
+
+    private static Timer latency(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("mail.dispatch.latency")
+                .description("Desde que se encola un correo hasta que se envía o se descarta")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /** Encola el correo; el futuro termina cuando el servidor lo aceptó o se agotaron los reintentos. */
+    public CompletableFuture<Void> submit(MimeMessage message, String requestId) {
+        Outgoing outgoing = new Outgoing(message, requestId, new CompletableFuture<>(), System.nanoTime(), 0);
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Despachador de correo detenido"));
+        }
+        try {
+            if (!queue.offer(outgoing, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Cola de correo llena"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        return outgoing.result();
+    }
+
+    /** Encola y espera el envío: quien llama solo da el correo por enviado si el servidor lo aceptó. */
+    public void send(MimeMessage message, String requestId) {
+        CompletableFuture<Void> result = submit(message, requestId);
+        try {
+            result.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new MailSendException("No se pudo enviar el correo " + requestId, e.getCause());
+        } catch (TimeoutException e) {
+            // Quien llama lo dará por fallido: el correo no debe salir después (ni leer un PDF ya liberado)
+            abandon(result);
+            throw new MailSendException("Se agotó la espera del correo " + requestId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Envío del correo " + requestId + " interrumpido", e);
+        }
+    }
+
+    private void abandon(CompletableFuture<Void> result) {
+        result.cancel(false);
+        queue.removeIf(outgoing -> outgoing.result() == result);
+        awaitingRetry.removeIf(outgoing -> outgoing.result() == result);
+    }
+
+    private void dispatchLoop() {
+        SmtpConnection connection = new SmtpConnection();
+        List<Outgoing> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                Outgoing first = queue.poll(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    connection.close();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                // Los abandonados por timeout pueden haberse tomado de la cola antes de retirarlos
+                batch.removeIf(outgoing -> outgoing.result().isDone());
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                batchSizes.record(batch.size());
+                batchTimer.record(() -> dispatch(batch, connection));
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void dispatch(List<Outgoing> batch, SmtpConnection connection) {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            dispatchWithSender(batch);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Outgoing outgoing = batch.get(i);
+            if (outgoing.result().isDone()) {
+                continue;
+            }
+            Transport transport;
+            try {
+                transport = connection.open(sender);
+            } catch (MessagingException e) {
+                // Sin conexión el resto del lote correría la misma suerte
+                batch.subList(i, batch.size()).forEach(pending -> failed(pending, e));
+                return;
+            }
+            try {
+                deliver(transport, outgoing.message());
+                sent(outgoing);
+            } catch (MessagingException | RuntimeException e) {
+                if (!(e instanceof SendFailedException)) {
+                    connection.close();
+                }
+                failed(outgoing, e);
+            }
+        }
+    }
+
+    // Para senders que no exponen la sesión: el lote sale en una sola llamada, que también usa una conexión
+    private void dispatchWithSender(List<Outgoing> batch) {
+        try {
+            mailSender.send(batch.stream().map(Outgoing::message).toArray(MimeMessage[]::new));
+            batch.forEach(this::sent);
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (Outgoing outgoing : batch) {
+                Exception cause = failedMessages.isEmpty() ? e : failedMessages.get(outgoing.message());
+                if (cause == null) {
+                    sent(outgoing);
+                } else {
+                    failed(outgoing, cause);
+                }
+            }
+        } catch (MailException e) {
+            batch.forEach(outgoing -> failed(outgoing, e));
+        }
+    }
+
+    // Mismo tratamiento que JavaMailSenderImpl antes de enviar
+    private static void deliver(Transport transport, MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            message.setHeader("Message-ID", messageId);
+        }
+        Address[] recipients = message.getAllRecipients();
+        transport.sendMessage(message, recipients != null ? recipients : new Address[0]);
+    }
+
+    private void sent(Outgoing outgoing) {
+        sentLatency.record(System.nanoTime() - outgoing.submittedAt(), TimeUnit.NANOSECONDS);
+        log.debug("Correo {} enviado", outgoing.requestId());
+        outgoing.result().complete(null);
+    }
+
+    private void failed(Outgoing outgoing, Exception error) {
+        if (outgoing.result().isDone()) {
+            return;
+        }
+        if (running && outgoing.attempts() < maxRetries && isTransient(error)) {
+            Outgoing retry = outgoing.retry();
+            long delay = backoffMillis(retry.attempts());
+            log.warn("Fallo transitorio enviando el correo {} (intento {}), reintento en {} ms: {}",
+                    outgoing.requestId(), retry.attempts(), delay, error.getMessage());
+            retries.increment();
+            awaitingRetry.add(retry);
+            retryScheduler.schedule(() -> requeue(retry), delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        failedLatency.record(System.nanoTime() - outgoing.submittedAt(), TimeUnit.NANOSECONDS);
+        log.error("❌ No se pudo enviar el correo {}: {}", outgoing.requestId(), error.getMessage());
+        outgoing.result().completeExceptionally(error);
+    }
+
+    private void requeue(Outgoing retry) {
+        if (!awaitingRetry.remove(retry) || retry.result().isDone()) {
+            return;
+        }
+        if (!running || !queue.offer(retry)) {
+            retry.result().completeExceptionally(new RejectedExecutionException("Cola de correo llena"));
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long base = Math.min(maxBackoff.toMillis(), minBackoff.toMillis() << Math.min(attempt - 1, 20));
+        long spread = (long) (base * jitter);
+        long delay = spread > 0 ? base + ThreadLocalRandom.current().nextLong(-spread, spread + 1) : base;
+        return Math.max(minBackoff.toMillis(), Math.min(maxBackoff.toMillis(), delay));
+    }
+
+    /** Red caída, timeouts y respuestas 4xx se reintentan; direcciones inválidas, 5xx y login fallido no. */
+    static boolean isTransient(Throwable error) {
+        List<Throwable> chain = new ArrayList<>();
+        for (Throwable t = error; t != null && !chain.contains(t); t = t.getCause()) {
+            chain.add(t);
+        }
+        for (Throwable t : chain) {
+            if (t instanceof AuthenticationFailedException) {
+                return false;
+            }
+            if (t instanceof SMTPSendFailedException smtp) {
+                return smtp.getReturnCode() / 100 == 4;
+            }
+            if (t instanceof SMTPAddressFailedException smtp) {
+                return smtp.getReturnCode() / 100 == 4;
+            }
+        }
+        return chain.stream().noneMatch(SendFailedException.class::isInstance);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.shutdownNow();
+        retryScheduler.shutdownNow();
+        List<Outgoing> pending = new ArrayList<>(awaitingRetry);
+        awaitingRetry.clear();
+        queue.drainTo(pending);
+        RejectedExecutionException stopped = new RejectedExecutionException("Despachador de correo detenido");
+        pending.forEach(outgoing -> outgoing.result().completeExceptionally(stopped));
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Conexión SMTP de un hilo despachador; se reabre si el servidor la cerró. */
+    private final class SmtpConnection {
+
+        private Transport transport;
+
+        Transport open(JavaMailSenderImpl sender) throws MessagingException {
+            if (transport != null && transport.isConnected()) {
+                return transport;
+            }
+            close();
+            Session session = sender.getSession();
+            String protocol = sender.getProtocol() != null ? sender.getProtocol()
+                    : session.getProperty("mail.transport.protocol");
+            Transport opened = session.getTransport(protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL);
+            String username = StringUtils.hasLength(sender.getUsername()) ? sender.getUsername() : null;
+            String password = username != null ? sender.getPassword() : null;
+            opened.connect(sender.getHost(), sender.getPort(), username, password);
+            connections.increment();
+            transport = opened;
+            return opened;
+        }
+
+        void close() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error cerrando la conexión SMTP: {}", e.getMessage());
+            }
+            transport = null;
+        }
+    }
+
+    private record Outgoing(MimeMessage message, String requestId, CompletableFuture<Void> result,
+                            long submittedAt, int attempts) {
+
+        Outgoing retry() {
+            return new Outgoing(message, requestId, result, submittedAt, attempts + 1);
+        }
+    }
+}
@@ -20,41 +20,81 @@ import java.time.format.DateTimeFormatter;
 public class MailService {
 
     private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
     private final PdfGenerator pdfGenerator;
+    private final ChartRenderer chartRenderer;
+    private final MailTemplates templates;
 
     private static final DateTimeFormatter SUBJECT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final String CHART_CID = "grafico-resumen";
 
     public void sendSummaryEmail(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText) {
+        RenderedReport report = render(event, aggregates, summaryText);
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+            send(buildSummaryEmail(report, event.getEmailTo(), event.getRequestId()), event.getRequestId());
+        } finally {
+            report.release();
+        }
+    }
 
-            helper.setTo(event.getEmailTo());
-            helper.setSubject(buildSubject(event));
-
-            if (event.isPremium()) {
-                String htmlBody = buildPremiumHtml(event, aggregates, summaryText);
-                if (event.isAttachPdf()) {
-                    byte[] pdfBytes = pdfGenerator.generatePdf(htmlBody);
-                    helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
-                    helper.setTo(event.getEmailTo());
-                    helper.setSubject(buildSubject(event));
-                    helper.setText(htmlBody, true);
-                    helper.addAttachment("reporte_oreo.pdf", new ByteArrayResource(pdfBytes));
-                } else {
-                    helper.setText(htmlBody, true);
-                }
+    /** Genera el contenido del reporte (HTML y PDF si es premium, texto plano si no), independiente del destinatario. */
+    public RenderedReport render(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText) {
+        RenderedReport.RenderedReportBuilder report = RenderedReport.builder()
+                .requestId(event.getRequestId())
+                .subject(buildSubject(event));
+        if (event.isPremium()) {
+            byte[] chart = event.isIncludeCharts() ? chartRenderer.render(aggregates) : null;
+            // El correo referencia el gráfico como imagen inline (cid:); el PDF no admite adjuntos y lo lleva embebido
+            report.htmlBody(templates.premiumHtml(event, aggregates, summaryText, "cid:" + CHART_CID));
+            report.chartPng(chart);
+            if (event.isAttachPdf()) {
+                String pdfHtml = templates.premiumHtml(event, aggregates, summaryText,
+                        chart != null ? ChartRenderer.toDataUri(chart) : null);
+                report.pdf(pdfGenerator.generateAttachment(pdfHtml));
             }
+        } else {
+            report.textBody(templates.plainBody(event, aggregates, summaryText));
+        }
+        return report.build();
+    }
 
-
-            mailSender.send(message);
-            log.info("✅ Email enviado exitosamente para request: {}", event.getRequestId());
+    /**
+     * Arma el correo de un reporte ya generado para un destinatario. {@code requestId} es la solicitud
+     * de ese destinatario, que puede no ser la que generó un reporte compartido.
+     */
+    public MimeMessage buildSummaryEmail(RenderedReport report, String emailTo, String requestId) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            boolean multipart = report.getPdf() != null || report.getChartPng() != null;
+            MimeMessageHelper helper = new MimeMessageHelper(message, multipart, StandardCharsets.UTF_8.name());
+
+            helper.setTo(emailTo);
+            helper.setSubject(report.getSubject());
+            if (report.getHtmlBody() != null) {
+                helper.setText(report.getHtmlBody(), true);
+            } else if (report.getTextBody() != null) {
+                helper.setText(report.getTextBody());
+            }
+            if (report.getChartPng() != null) {
+                helper.addInline(CHART_CID, new ByteArrayResource(report.getChartPng()), ChartRenderer.CONTENT_TYPE);
+            }
+            if (report.getPdf() != null) {
+                helper.addAttachment("reporte_oreo.pdf", report.getPdf().dataSource());
+            }
+            return message;
 
         } catch (MessagingException e) {
-            log.error("❌ Error preparando correo de resumen {}", event.getRequestId(), e);
+            log.error("❌ Error preparando correo de resumen {}", requestId, e);
             throw new RuntimeException("Error al preparar el email", e);
+        }
+    }
+
+    public void send(MimeMessage message, String requestId) {
+        try {
+            mailDispatcher.send(message, requestId);
+            log.info("✅ Email enviado exitosamente para request: {}", requestId);
         } catch (Exception e) {
-            log.error("❌ No se pudo enviar el correo de resumen {}", event.getRequestId(), e);
+            log.error("❌ No se pudo enviar el correo de resumen {}", requestId, e);
             throw new RuntimeException("Error al enviar el email", e);
         }
     }
@@ -66,9 +106,9 @@ public class MailService {
 
             helper.setTo(event.getEmailTo());
             helper.setSubject("❌ Error en Reporte Semanal Oreo");
-            helper.setText(buildFailureBody(event, reason));
+            helper.setText(templates.failureBody(event, reason));
 
-            mailSender.send(message);
+            mailDispatcher.send(message, event.getRequestId());
             log.info("📧 Notificación de error enviada para request: {}", event.getRequestId());
 
         } catch (MessagingException ex) {
@@ -89,118 +129,4 @@ public class MailService {
 
         return base;
     }
-
-    private String buildPlainBody(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText) {
-        StringBuilder body = new StringBuilder();
-        body.append(summaryText).append("\n\n");
-        body.append("=").append("=".repeat(50)).append("=\n");
-        body.append("DETALLES DEL REPORTE\n");
-        body.append("=").append("=".repeat(50)).append("=\n");
-        body.append("• Periodo: ").append(event.getFrom()).append(" a ").append(event.getTo()).append("\n");
-        body.append("• Sucursal: ").append(event.getBranch()).append("\n");
-        body.append("• Total unidades: ").append(aggregates.getTotalUnits()).append("\n");
-        body.append("• Total ingresos: S/ ").append(String.format("%.2f", aggregates.getTotalRevenue())).append("\n");
-
-        if (aggregates.getTopSku() != null) {
-            body.append("• SKU más vendido: ").append(aggregates.getTopSku()).append("\n");
-        }
-        if (aggregates.getTopBranch() != null && !aggregates.getTopBranch().equals(event.getBranch())) {
-            body.append("• Sucursal top: ").append(aggregates.getTopBranch()).append("\n");
-        }
-
-        body.append("\n--\nSistema de Reportes Oreo Insight Factory");
-        return body.toString();
-    }
-
-    private String buildFailureBody(ReportRequestedEvent event, String reason) {
-        return "No fue posible generar el resumen solicitado.\n\n" +
-                "Detalles:\n" +
-                "• ID de solicitud: " + event.getRequestId() + "\n" +
-                "• Periodo: " + event.getFrom() + " a " + event.getTo() + "\n" +
-                "• Sucursal: " + event.getBranch() + "\n" +
-                "• Motivo del error: " + reason + "\n\n" +
-                "Por favor, contacte al administrador del sistema.\n\n" +
-                "--\nSistema de Reportes Oreo Insight Factory";
-    }
-
-    private String buildPremiumHtml(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText) {
-        String chartUrl = buildChartUrl(aggregates);
-
-        return "<!DOCTYPE html>" +
-                "<html lang='es'>" +
-                "<head>" +
-                "<meta charset='UTF-8'>" +
-                "<meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                "<title>Reporte Oreo</title>" +
-                "<style>" +
-                "body { font-family: 'Segoe UI', Arial, sans-serif; margin: 0; padding: 20px; background: #f8fafc; color: #1e293b; }" +
-                ".container { max-width: 800px; margin: 0 auto; background: white; border-radius: 12px; box-shadow: 0 4px 6px -1px rgba(0,0,0,0.1); overflow: hidden; }" +
-                ".header { background: linear-gradient(135deg, #6B46C1, #805AD5); color: white; padding: 30px; text-align: center; }" +
-                ".header h1 { margin: 0; font-size: 28px; }" +
-                ".header p { margin: 8px 0 0; opacity: 0.9; }" +
-                ".content { padding: 30px; }" +
-                ".summary { background: #f1f5f9; padding: 20px; border-radius: 8px; margin-bottom: 25px; line-height: 1.6; }" +
-                ".metrics { display: grid; grid-template-columns: repeat(auto-fit, minmax(150px, 1fr)); gap: 15px; margin: 25px 0; }" +
-                ".metric { background: #f8fafc; padding: 20px; border-radius: 8px; border-left: 4px solid #6B46C1; text-align: center; }" +
-                ".metric h3 { margin: 0 0 8px; font-size: 14px; color: #64748b; text-transform: uppercase; letter-spacing: 0.5px; }" +
-                ".metric p { margin: 0; font-size: 24px; font-weight: bold; color: #1e293b; }" +
-                ".chart-container { margin: 30px 0; text-align: center; }" +
-                ".footer { background: #f1f5f9; padding: 20px; text-align: center; color: #64748b; font-size: 14px; }" +
-                ".premium-badge { background: #fbbf24; color: #78350f; padding: 4px 12px; border-radius: 20px; font-size: 12px; font-weight: bold; display: inline-block; margin-left: 10px; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<div class='header'>" +
-                "<h1>🍪 Reporte Semanal Oreo " + (event.isPremium() ? "<span class='premium-badge'>PREMIUM</span>" : "") + "</h1>" +
-                "<p>" + event.getFrom() + " a " + event.getTo() + " | " + event.getBranch() + "</p>" +
-                "</div>" +
-                "<div class='content'>" +
-                "<div class='summary'>" +
-                "<p>" + summaryText.replace("\n", "<br>") + "</p>" +
-                "</div>" +
-                "<div class='metrics'>" +
-                "<div class='metric'><h3>Total Unidades</h3><p>" + aggregates.getTotalUnits() + "</p></div>" +
-                "<div class='metric'><h3>Total Ingresos</h3><p>S/ " + String.format("%.2f", aggregates.getTotalRevenue()) + "</p></div>" +
-                (aggregates.getTopSku() != null ? "<div class='metric'><h3>SKU Top</h3><p>" + aggregates.getTopSku() + "</p></div>" : "") +
-                (aggregates.getTopBranch() != null && !aggregates.getTopBranch().equals(event.getBranch()) ?
-                        "<div class='metric'><h3>Sucursal Top</h3><p>" + aggregates.getTopBranch() + "</p></div>" : "") +
-                "</div>" +
-                (event.isIncludeCharts() ?
-                        "<div class='chart-container'>" +
-                                "<img src='" + chartUrl + "' alt='Gráfico de Resumen' style='max-width: 100%; height: auto; border-radius: 8px;'/>" +
-                                "<p style='color: #64748b; font-size: 12px; margin-top: 8px;'>Gráfico generado automáticamente</p>" +
-                                "</div>" : "") +
-                "</div>" +
-                "<div class='footer'>" +
-                "<p>🚀 Generado automáticamente por Oreo Insight Factory</p>" +
-                "</div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
-    }
-
-    private String buildChartUrl(SalesAggregates aggregates) {
-        return "https://quickchart.io/chart?c=" +
-                "{" +
-                "  type: 'bar'," +
-                "  data: {" +
-                "    labels: ['Unidades Vendidas', 'Ingresos (S/)']," +
-                "    datasets: [{" +
-                "      label: 'Métricas Principales'," +
-                "      data: [" + aggregates.getTotalUnits() + ", " + String.format("%.2f", aggregates.getTotalRevenue()) + "]," +
-                "      backgroundColor: ['#6B46C1', '#805AD5']" +
-                "    }]" +
-                "  }," +
-                "  options: {" +
-                "    plugins: {" +
-                "      legend: { display: false }," +
-                "      title: { display: true, text: 'Resumen de Ventas' }" +
-                "    }," +
-                "    scales: {" +
-                "      y: { beginAtZero: true }" +
-                "    }" +
-                "  }" +
-                "}&width=600&height=300";
-    }
-}
\ No newline at end of file
+}
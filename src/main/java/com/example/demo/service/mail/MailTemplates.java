@@ -0,0 +1,90 @@
+package com.example.demo.service.mail;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.event.ReportRequestedEvent;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Cuerpos de los correos de reporte. Las plantillas de {@code classpath:mail/} se compilan al
+ * arrancar; por reporte solo se llenan agregados, fechas y el texto del LLM, que se escapa como HTML
+ * (sus saltos de línea pasan a {@code <br/>}).
+ */
+@Component
+public class MailTemplates {
+
+    private static final String BADGE = "<span class='premium-badge'>PREMIUM</span>";
+
+    private final CompiledTemplate premium = CompiledTemplate.html(load("premium-report.html"));
+    private final CompiledTemplate metric = CompiledTemplate.html(load("metric.html"));
+    private final CompiledTemplate chart = CompiledTemplate.html(load("chart.html"));
+    private final CompiledTemplate plain = CompiledTemplate.text(load("plain-report.txt"));
+    private final CompiledTemplate failure = CompiledTemplate.text(load("failure.txt"));
+
+    /** HTML del reporte premium; {@code chartSrc} null omite el gráfico. */
+    public String premiumHtml(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText,
+                              String chartSrc) {
+        return premium.render(Map.of(
+                "badge", event.isPremium() ? BADGE : "",
+                "from", event.getFrom(),
+                "to", event.getTo(),
+                "branch", String.valueOf(event.getBranch()),
+                "summary", summaryText,
+                "units", aggregates.getTotalUnits(),
+                "revenue", money(aggregates),
+                "skuMetric", aggregates.getTopSku() != null
+                        ? metric.with(Map.of("label", "SKU Top", "value", aggregates.getTopSku())) : "",
+                "branchMetric", showTopBranch(event, aggregates)
+                        ? metric.with(Map.of("label", "Sucursal Top", "value", aggregates.getTopBranch())) : "",
+                "chart", event.isIncludeCharts() && chartSrc != null ? chart.with(Map.of("src", chartSrc)) : ""));
+    }
+
+    public String plainBody(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText) {
+        String extra = "";
+        if (aggregates.getTopSku() != null) {
+            extra = "• SKU más vendido: " + aggregates.getTopSku() + "\n";
+        }
+        if (showTopBranch(event, aggregates)) {
+            extra += "• Sucursal top: " + aggregates.getTopBranch() + "\n";
+        }
+        return plain.render(Map.of(
+                "summary", summaryText,
+                "from", event.getFrom(),
+                "to", event.getTo(),
+                "branch", String.valueOf(event.getBranch()),
+                "units", aggregates.getTotalUnits(),
+                "revenue", money(aggregates),
+                "extra", extra));
+    }
+
+    public String failureBody(ReportRequestedEvent event, String reason) {
+        return failure.render(Map.of(
+                "requestId", String.valueOf(event.getRequestId()),
+                "from", event.getFrom(),
+                "to", event.getTo(),
+                "branch", String.valueOf(event.getBranch()),
+                "reason", String.valueOf(reason)));
+    }
+
+    private static boolean showTopBranch(ReportRequestedEvent event, SalesAggregates aggregates) {
+        return aggregates.getTopBranch() != null && !aggregates.getTopBranch().equals(event.getBranch());
+    }
+
+    private static String money(SalesAggregates aggregates) {
+        return String.format("%.2f", aggregates.getTotalRevenue());
+    }
+
+    private static String load(String name) {
+        try (InputStream in = new ClassPathResource("mail/" + name).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se encontró la plantilla de correo " + name, e);
+        }
+    }
+}
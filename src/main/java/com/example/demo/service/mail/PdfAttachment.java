@@ -0,0 +1,78 @@
+package com.example.demo.service.mail;
+
+import jakarta.activation.DataSource;
+import jakarta.activation.FileDataSource;
+import jakarta.activation.MimetypesFileTypeMap;
+import jakarta.mail.util.ByteArrayDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PDF generado para adjuntar, en memoria o en un archivo temporal. El adjunto se lee desde el
+ * {@link DataSource} recién al enviar, así que el archivo vive hasta el último {@link #release()}:
+ * un reporte compartido entre solicitudes idénticas se libera una vez por destinatario.
+ */
+@Slf4j
+public final class PdfAttachment {
+
+    private static final String CONTENT_TYPE = "application/pdf";
+
+    private final DataSource dataSource;
+    private final Path file;
+    private final long size;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private PdfAttachment(DataSource dataSource, Path file, long size) {
+        this.dataSource = dataSource;
+        this.file = file;
+        this.size = size;
+    }
+
+    public static PdfAttachment inMemory(byte[] pdf) {
+        ByteArrayDataSource source = new ByteArrayDataSource(pdf, CONTENT_TYPE);
+        source.setName("reporte_oreo.pdf");
+        return new PdfAttachment(source, null, pdf.length);
+    }
+
+    public static PdfAttachment onDisk(Path file) throws IOException {
+        FileDataSource source = new FileDataSource(file.toFile());
+        source.setFileTypeMap(new MimetypesFileTypeMap() {
+            @Override
+            public String getContentType(String filename) {
+                return CONTENT_TYPE;
+            }
+        });
+        return new PdfAttachment(source, file, Files.size(file));
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isOnDisk() {
+        return file != null;
+    }
+
+    /** Suma usuarios del adjunto; cada uno debe llamar a {@link #release()} al terminar. */
+    public void retain(int count) {
+        references.addAndGet(count);
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0 && file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el PDF temporal {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -1,26 +1,258 @@
 package com.example.demo.service.mail;
 
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Render de PDFs en un pool propio acotado a los núcleos disponibles: el render es CPU puro y
+ * no debe competir sin límite con los workers de reportes (que pueden ser hilos virtuales).
+ * Las fuentes se leen una sola vez y las métricas de fuentes se comparten entre renders; al
+ * arrancar se hace un render de prueba para no pagar la carga de clases en el primer reporte.
+ */
 @Service
 @Slf4j
 public class PdfGenerator {
 
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final String WARMUP_HTML = "<!DOCTYPE html><html><head><meta charset='UTF-8'/>" +
+            "<style>body { font-family: 'Segoe UI', Arial, sans-serif; } table { border-collapse: collapse; }" +
+            " td { border: 1px solid #e2e8f0; padding: 8px; } .metric { background: #f8fafc; }</style></head>" +
+            "<body><h1>Oreo</h1><table><tr><td class='metric'>Unidades</td><td>0</td></tr></table></body></html>";
+
+    private final ThreadPoolExecutor pool;
+    private final Duration timeout;
+    private final boolean warmupEnabled;
+    private final Timer renderTimer;
+    private final Timer queueWait;
+    // Compartida entre renders: las métricas de cada fuente se calculan una sola vez
+    private final FSDefaultCacheStore fontMetricsCache = new FSDefaultCacheStore();
+    private final Map<String, byte[]> fonts;
+    private final boolean fileMode;
+    private final Path tempDir;
+    private final long maxHeapBytes;
+
+    public PdfGenerator(@Value("${pdf.render.threads:0}") int threads,
+                        @Value("${pdf.render.timeout:60s}") Duration timeout,
+                        @Value("${pdf.render.warmup:true}") boolean warmupEnabled,
+                        @Value("${pdf.fonts.dir:}") String fontsDir,
+                        @Value("${pdf.attachment.mode:memory}") String attachmentMode,
+                        @Value("${pdf.attachment.temp-dir:}") String tempDir,
+                        @Value("${pdf.attachment.max-heap-bytes:4194304}") long maxHeapBytes,
+                        MeterRegistry meterRegistry) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("pdf-render-"));
+        this.timeout = timeout;
+        this.warmupEnabled = warmupEnabled;
+        this.fonts = loadFonts(fontsDir);
+        this.fileMode = switch (attachmentMode.trim().toLowerCase()) {
+            case "memory" -> false;
+            case "file" -> true;
+            default -> throw new IllegalArgumentException("pdf.attachment.mode debe ser memory o file: " + attachmentMode);
+        };
+        this.tempDir = Path.of(StringUtils.hasText(tempDir) ? tempDir : System.getProperty("java.io.tmpdir"));
+        this.maxHeapBytes = maxHeapBytes;
+        this.renderTimer = Timer.builder("pdf.render")
+                .description("Tiempo de render de PDFs de reportes premium")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("pdf.render.wait")
+                .description("Espera por un hilo del pool de render de PDFs")
+                .register(meterRegistry);
+        Gauge.builder("pdf.render.queued", pool, p -> p.getQueue().size())
+                .description("PDFs esperando un hilo de render")
+                .register(meterRegistry);
+    }
+
     public byte[] generatePdf(String htmlContent) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            PdfRendererBuilder builder = new PdfRendererBuilder();
-            builder.withHtmlContent(htmlContent, null);
+        byte[] pdf = onPool(() -> render(htmlContent), abandoned -> { });
+        log.info("✅ PDF generado correctamente ({} bytes)", pdf.length);
+        return pdf;
+    }
+
+    /**
+     * PDF listo para adjuntar. En modo {@code file} se escribe directo a un archivo temporal y
+     * PDFBox no retiene más de {@code pdf.attachment.max-heap-bytes} en memoria (el resto va a
+     * disco), así el heap por reporte queda acotado; el archivo se borra con el último release.
+     */
+    public PdfAttachment generateAttachment(String htmlContent) {
+        if (!fileMode) {
+            return PdfAttachment.inMemory(generatePdf(htmlContent));
+        }
+        PdfAttachment attachment = onPool(() -> renderToFile(htmlContent), PdfAttachment::release);
+        log.info("✅ PDF generado en disco ({} bytes)", attachment.size());
+        return attachment;
+    }
+
+    /**
+     * Corre el render en el pool esperando a lo sumo {@code pdf.render.timeout}. Cancelar no detiene
+     * a openhtmltopdf, así que el resultado se reclama una sola vez: si quien espera ya se fue, el
+     * worker lo entrega a {@code discard} (p. ej. borra el archivo temporal) en lugar de perderlo.
+     */
+    private <T> T onPool(Callable<T> render, Consumer<T> discard) {
+        long submittedAt = System.nanoTime();
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> result = pool.submit(() -> {
+            queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            T value = renderTimer.recordCallable(render);
+            if (!claimed.compareAndSet(false, true)) {
+                log.warn("Se descarta un PDF terminado después de que su solicitud se abandonó");
+                discard.accept(value);
+            }
+            return value;
+        });
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!claimed.compareAndSet(false, true)) {
+                // El render terminó justo al vencer el plazo: el resultado ya es de quien espera
+                return completed(result);
+            }
+            result.cancel(true);
+            log.error("❌ El render del PDF superó {}", timeout);
+            throw new RuntimeException("Error al generar PDF", e);
+        } catch (InterruptedException e) {
+            if (claimed.compareAndSet(false, true)) {
+                result.cancel(true);
+            } else {
+                discard.accept(completed(result));
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error al generar PDF", e);
+        } catch (ExecutionException e) {
+            log.error("❌ Error generando PDF: {}", e.getCause().getMessage(), e.getCause());
+            throw new RuntimeException("Error al generar PDF", e.getCause());
+        }
+    }
+
+    // Solo para un resultado ya reclamado: el worker está devolviéndolo, así que la espera es mínima
+    private static <T> T completed(Future<T> result) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Un render reclamado no puede fallar", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private byte[] render(String htmlContent) throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE)) {
+            PdfRendererBuilder builder = builder(htmlContent);
             builder.toStream(out);
             builder.run();
-            log.info("✅ PDF generado correctamente ({} bytes)", out.size());
             return out.toByteArray();
-        } catch (Exception e) {
-            log.error("❌ Error generando PDF: {}", e.getMessage(), e);
-            throw new RuntimeException("Error al generar PDF", e);
         }
     }
+
+    private PdfAttachment renderToFile(String htmlContent) throws IOException {
+        Path file = Files.createTempFile(tempDir, "reporte-", ".pdf");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file));
+             PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(maxHeapBytes))) {
+            PdfRendererBuilder builder = builder(htmlContent);
+            builder.usePDDocument(document);
+            builder.toStream(out);
+            builder.run();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return PdfAttachment.onDisk(file);
+    }
+
+    private PdfRendererBuilder builder(String htmlContent) {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+        fonts.forEach((family, bytes) -> builder.useFont(() -> new ByteArrayInputStream(bytes), family));
+        builder.withHtmlContent(htmlContent, null);
+        return builder;
+    }
+
+    /** Render de prueba en cada hilo del pool, fuera del arranque para no demorarlo. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmupEnabled) {
+            return;
+        }
+        for (int i = 0; i < pool.getCorePoolSize(); i++) {
+            pool.execute(() -> {
+                try {
+                    render(WARMUP_HTML);
+                } catch (Exception e) {
+                    log.warn("Falló el render de calentamiento del PDF: {}", e.getMessage());
+                }
+            });
+        }
+        log.info("Pool de render de PDF calentando {} hilos", pool.getCorePoolSize());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Cada archivo .ttf/.otf se registra con su nombre como familia, p. ej. "Segoe UI.ttf" -> 'Segoe UI'
+    private static Map<String, byte[]> loadFonts(String fontsDir) {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        if (!StringUtils.hasText(fontsDir)) {
+            return loaded;
+        }
+        try (Stream<Path> files = Files.list(Path.of(fontsDir))) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                String lower = name.toLowerCase();
+                if (lower.endsWith(".ttf") || lower.endsWith(".otf")) {
+                    loaded.put(name.substring(0, name.length() - 4), Files.readAllBytes(file));
+                }
+            }
+            log.info("Fuentes para PDF cargadas: {}", loaded.keySet());
+        } catch (IOException e) {
+            log.warn("No se pudieron cargar las fuentes de {}: {}", fontsDir, e.getMessage());
+        }
+        return loaded;
+    }
 }
@@ -0,0 +1,33 @@
+package com.example.demo.service.mail;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Contenido ya generado de un reporte (asunto, HTML o texto plano, gráfico y PDF). No depende del destinatario,
+ * así que se comparte entre solicitudes idénticas; quien lo recibe debe llamar a {@link #release()}.
+ */
+@Getter
+@Builder
+public class RenderedReport {
+
+    private final String requestId; // solicitud que lo generó; con solicitudes agrupadas, la del líder
+    private final String subject;
+    private final String htmlBody; // null para reportes no premium
+    private final String textBody; // cuerpo de los reportes no premium
+    private final byte[] chartPng; // imagen inline del correo; null si no se pidieron gráficos
+    private final PdfAttachment pdf; // null si no se pidió adjunto
+
+    /** Suma destinatarios que comparten este reporte; cada uno lo libera tras enviar. */
+    public void retain(int count) {
+        if (pdf != null && count > 0) {
+            pdf.retain(count);
+        }
+    }
+
+    public void release() {
+        if (pdf != null) {
+            pdf.release();
+        }
+    }
+}
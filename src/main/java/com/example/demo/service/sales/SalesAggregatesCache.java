@@ -0,0 +1,117 @@
+package com.example.demo.service.sales;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.entity.Sale;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caché de agregados por (desde, hasta, sucursal normalizada).
+ * Las escrituras invalidan solo las entradas cuyo rango y sucursal incluyen la venta modificada.
+ * <p>
+ * Una carga que empezó antes de un commit puede terminar después de su invalidación, y
+ * {@code removeIf} no ve las cargas en curso. Cada invalidación sube {@code generation}; si cambió
+ * durante la carga, el valor se devuelve al llamador pero se retira de la caché.
+ */
+@Component
+@Slf4j
+public class SalesAggregatesCache {
+
+    private final Cache<Key, SalesAggregates> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SalesAggregatesCache(@Value("${sales.aggregates.cache.max-size:1000}") long maxSize,
+                                @Value("${sales.aggregates.cache.ttl:10m}") Duration ttl,
+                                MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "salesAggregates");
+    }
+
+    public SalesAggregates get(LocalDate from, LocalDate to, String branchKey, Supplier<SalesAggregates> loader) {
+        Key key = new Key(from, to, branchKey);
+        long[] loadedAt = {-1};
+        SalesAggregates value = cache.get(key, k -> {
+            loadedAt[0] = generation.get();
+            return loader.get();
+        });
+        // Solo el hilo que cargó lo comprueba; una invalidación posterior a esta lectura ya ve el valor guardado
+        if (loadedAt[0] >= 0 && loadedAt[0] != generation.get()) {
+            cache.asMap().remove(key, value);
+        }
+        return value;
+    }
+
+    /** Invalida las entradas afectadas por las ventas dadas, una vez confirmada la transacción en curso. */
+    public void evictFor(Collection<Sale> sales) {
+        Set<Touch> touched = sales.stream()
+                .filter(s -> s.getSoldAt() != null)
+                .map(s -> new Touch(s.getSoldAt().toLocalDate(), Sale.normalizeBranch(s.getBranch())))
+                .collect(Collectors.toSet());
+        if (touched.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> evict(touched));
+    }
+
+    public void evictFor(Sale sale) {
+        evictFor(Set.of(sale));
+    }
+
+    public void clear() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        });
+    }
+
+    // Invalidar antes del commit dejaría que una lectura concurrente vuelva a cachear el estado anterior
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void evict(Set<Touch> touched) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> touched.stream().anyMatch(key::covers));
+        log.debug("Caché de agregados invalidada para {}", touched);
+    }
+
+    private record Key(LocalDate from, LocalDate to, String branchKey) {
+        // Una entrada sin sucursal agrega todas, así que cualquier venta del rango la afecta
+        boolean covers(Touch touch) {
+            return !touch.day().isBefore(from) && !touch.day().isAfter(to)
+                    && (branchKey == null || Objects.equals(branchKey, touch.branchKey()));
+        }
+    }
+
+    private record Touch(LocalDate day, String branchKey) {
+    }
+}
@@ -1,42 +1,66 @@
 package com.example.demo.service.sales;
 
 import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.dto.sales.SalesTotals;
+import com.example.demo.dto.sales.UnitsByKey;
 import com.example.demo.entity.Sale;
+import com.example.demo.repository.DailySalesRollupRepository;
 import com.example.demo.repository.SalesRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class SalesAggregationService {
 
     private final SalesRepository salesRepository;
+    private final DailySalesRollupRepository rollupRepository;
+    private final SalesAggregatesCache aggregatesCache;
+    private final SalesRollupService rollupService;
+
+    @Value("${sales.rollup.enabled:true}")
+    private boolean useRollup;
 
     public SalesAggregates calculateAggregates(LocalDate from, LocalDate to, String branch) {
-        LocalDateTime start = from != null ? from.atStartOfDay() : LocalDate.now().minusDays(6).atStartOfDay();
+        LocalDate effectiveFrom = from != null ? from : LocalDate.now().minusDays(6);
         LocalDate effectiveTo = to != null ? to : LocalDate.now();
-        LocalDateTime end = effectiveTo.atTime(23, 59, 59, 999_000_000);
+        String branchKey = Sale.normalizeBranch(branch);
+
+        return aggregatesCache.get(effectiveFrom, effectiveTo, branchKey,
+                () -> aggregate(effectiveFrom, effectiveTo, branchKey));
+    }
 
-        List<Sale> sales = salesRepository.findByDateRange(start, end);
-        if (branch != null) {
-            sales = sales.stream()
-                    .filter(sale -> branch.equalsIgnoreCase(sale.getBranch()))
-                    .toList();
+    private SalesAggregates aggregate(LocalDate effectiveFrom, LocalDate effectiveTo, String branchKey) {
+        SalesTotals totals;
+        List<UnitsByKey> bySku;
+        List<UnitsByKey> byBranch;
+        if (useRollup && rollupService.isReady()) {
+            // El rango es por días completos y ambos caminos suman el ingreso redondeado a centavos por venta
+            totals = rollupRepository.sumTotals(effectiveFrom, effectiveTo, branchKey);
+            bySku = rollupRepository.sumUnitsBySku(effectiveFrom, effectiveTo, branchKey);
+            byBranch = rollupRepository.sumUnitsByBranch(effectiveFrom, effectiveTo, branchKey);
+        } else {
+            // Sumas y agrupaciones se resuelven en SQL; solo viaja una fila por SKU / sucursal
+            LocalDateTime start = effectiveFrom.atStartOfDay();
+            LocalDateTime end = effectiveTo.atTime(23, 59, 59, 999_000_000);
+            totals = salesRepository.sumTotals(start, end, branchKey);
+            bySku = salesRepository.sumUnitsBySku(start, end, branchKey);
+            byBranch = salesRepository.sumUnitsByBranch(start, end, branchKey);
         }
 
-        int totalUnits = sales.stream().mapToInt(Sale::getUnits).sum();
-        double totalRevenue = sales.stream().mapToDouble(sale -> sale.getUnits() * sale.getPrice()).sum();
+        int totalUnits = totals != null && totals.getTotalUnits() != null ? totals.getTotalUnits().intValue() : 0;
+        double totalRevenue = totals != null && totals.getTotalRevenue() != null ? totals.getTotalRevenue() : 0.0;
 
-        String topSku = topValue(sales, Sale::getSku, Sale::getUnits);
-        String topBranch = topValue(sales, Sale::getBranch, Sale::getUnits);
+        String topSku = topValue(bySku);
+        String topBranch = topValue(byBranch);
 
         return SalesAggregates.builder()
                 .totalUnits(totalUnits)
@@ -46,17 +70,12 @@ public class SalesAggregationService {
                 .build();
     }
 
-    private String topValue(List<Sale> sales,
-                            java.util.function.Function<Sale, String> classifier,
-                            java.util.function.ToIntFunction<Sale> unitsExtractor) {
-        if (sales.isEmpty()) {
-            return null;
-        }
-        Map<String, Integer> totals = sales.stream()
-                .collect(Collectors.groupingBy(classifier, Collectors.summingInt(unitsExtractor)));
-        Optional<Map.Entry<String, Integer>> top = totals.entrySet().stream()
-                .max(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue)
-                        .thenComparing(Map.Entry::getKey));
-        return top.map(Map.Entry::getKey).orElse(null);
+    // El desempate se hace en Java para no depender del collation de la base de datos
+    private String topValue(List<UnitsByKey> totals) {
+        return totals.stream()
+                .max(Comparator.comparingLong(UnitsByKey::getUnits)
+                        .thenComparing(UnitsByKey::getKey))
+                .map(UnitsByKey::getKey)
+                .orElse(null);
     }
-}
\ No newline at end of file
+}
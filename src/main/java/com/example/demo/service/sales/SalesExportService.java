@@ -0,0 +1,89 @@
+package com.example.demo.service.sales;
+
+import com.example.demo.dto.sales.ExportFormat;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.Sale;
+import com.example.demo.entity.User;
+import com.example.demo.repository.SalesRepository;
+import com.example.demo.util.DateRange;
+import com.example.demo.util.Mapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exporta ventas fila por fila desde un cursor de base de datos hacia el stream de salida.
+ * Cada venta se desasocia del contexto de persistencia apenas se escribe.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesExportService {
+
+    private static final String CSV_HEADER = "id,sku,units,price,branch,soldAt,createdBy";
+
+    private final SalesRepository salesRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public long export(LocalDate from, LocalDate to, String branchFilter, ExportFormat format,
+                       User currentUser, OutputStream out) throws IOException {
+        DateRange range = DateRange.of(from, to);
+        String branch = currentUser.getRole() == Role.BRANCH ? currentUser.getBranch() : branchFilter;
+        String branchKey = (branch != null && !branch.isBlank()) ? Sale.normalizeBranch(branch) : null;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long rows = 0;
+        try (Stream<Sale> sales = salesRepository.streamByDateRange(range.getFrom(), range.getTo(), branchKey)) {
+            Iterator<Sale> it = sales.iterator();
+            while (it.hasNext()) {
+                Sale sale = it.next();
+                writer.write(format == ExportFormat.CSV ? toCsv(sale) : objectMapper.writeValueAsString(Mapper.toResponse(sale)));
+                writer.write('\n');
+                entityManager.detach(sale);
+                rows++;
+            }
+        }
+        writer.flush();
+        log.info("Exportación {} completada: {} ventas", format, rows);
+        return rows;
+    }
+
+    private String toCsv(Sale sale) {
+        return csv(sale.getId()) + ',' +
+                csv(sale.getSku()) + ',' +
+                sale.getUnits() + ',' +
+                sale.getPrice() + ',' +
+                csv(sale.getBranch()) + ',' +
+                sale.getSoldAt() + ',' +
+                csv(sale.getCreatedBy());
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.demo.service.sales;
+
+import com.example.demo.dto.sales.SaleBatchResponse;
+import com.example.demo.dto.sales.SaleIngestProgress;
+import com.example.demo.dto.sales.SaleRequest;
+import com.example.demo.dto.sales.SaleRowError;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.Sale;
+import com.example.demo.entity.User;
+import com.example.demo.exception.BusinessException;
+import com.example.demo.repository.SalesRepository;
+import com.example.demo.util.Mapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Ingesta masiva de ventas (arreglo JSON o NDJSON en streaming): valida fila por fila y persiste en bloques, cada uno en su propia transacción,
+ * para aprovechar el batching JDBC de Hibernate sin que un error aislado tumbe todo el lote.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesIngestionService {
+
+    /** Ningún campo de una venta se acerca a esto; un texto más largo es basura o un intento de agotar memoria. */
+    private static final int MAX_STRING_LENGTH = 10_000;
+    private static final int MAX_NESTING_DEPTH = 16;
+
+    private final SalesRepository salesRepository;
+    private final SalesRollupService rollupService;
+    private final SalesAggregatesCache aggregatesCache;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${sales.ingest.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${sales.ingest.max-batch-rows:10000}")
+    private int maxBatchRows;
+
+    public SaleBatchResponse ingestBatch(List<SaleRequest> rows, User currentUser) {
+        if (rows == null || rows.isEmpty()) {
+            throw new IllegalArgumentException("El lote de ventas está vacío");
+        }
+        if (rows.size() > maxBatchRows) {
+            throw new BusinessException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "El lote supera el máximo de " + maxBatchRows + " filas");
+        }
+        IngestionSession session = new IngestionSession(currentUser, null);
+        for (int i = 0; i < rows.size(); i++) {
+            session.accept(i + 1, rows.get(i));
+        }
+        session.flush();
+        return session.summary();
+    }
+
+    /**
+     * Lee el cuerpo línea por línea (una venta JSON por línea) sin cargarlo completo en memoria.
+     * Cada línea se parsea en streaming directamente desde el cuerpo, sin copiarla a un String, y con
+     * límites de longitud de texto y anidamiento: una línea enorme (o un cuerpo sin saltos de línea)
+     * se rechaza como error de fila en lugar de acumularse en el heap. Cada vez que se persiste un
+     * bloque se publica una línea de progreso con los rechazos acumulados desde la anterior.
+     */
+    public SaleIngestProgress ingestNdjson(InputStream body, User currentUser, Consumer<SaleIngestProgress> progressListener)
+            throws IOException {
+        JsonFactory factory = objectMapper.getFactory().copy();
+        factory.setStreamReadConstraints(StreamReadConstraints.builder()
+                .maxStringLength(MAX_STRING_LENGTH)
+                .maxNestingDepth(MAX_NESTING_DEPTH)
+                .build());
+        ObjectReader saleReader = objectMapper.readerFor(SaleRequest.class);
+        IngestionSession session = new IngestionSession(currentUser, progressListener);
+        try (body) {
+            LineInputStream line = new LineInputStream(body);
+            long row = 0;
+            while (line.next()) {
+                row++;
+                try (JsonParser parser = factory.createParser(line)) {
+                    if (parser.nextToken() == null) {
+                        continue;
+                    }
+                    session.accept(row, saleReader.readValue(parser));
+                } catch (JsonProcessingException ex) {
+                    session.rejectUnparsable(row, ex.getOriginalMessage());
+                } finally {
+                    // Lo que quede de la línea (texto tras el JSON o el resto de una fila inválida) se descarta sin acumularse
+                    line.skipRest();
+                }
+            }
+        }
+        session.flush();
+        return session.progress("DONE");
+    }
+
+    /**
+     * Vista de una sola línea del cuerpo: entrega bytes hasta el siguiente salto de línea y luego
+     * fin de flujo, con un búfer fijo, de modo que la memoria no depende del largo de la línea.
+     */
+    private static final class LineInputStream extends InputStream {
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int pos;
+        private int limit;
+        private boolean lineEnded = true;
+
+        LineInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        /** Avanza a la siguiente línea; false si el cuerpo terminó. */
+        boolean next() throws IOException {
+            if (pos >= limit && !fill()) {
+                return false;
+            }
+            lineEnded = false;
+            return true;
+        }
+
+        void skipRest() throws IOException {
+            while (!lineEnded) {
+                if (pos >= limit && !fill()) {
+                    lineEnded = true;
+                    return;
+                }
+                while (pos < limit) {
+                    if (buffer[pos++] == '\n') {
+                        lineEnded = true;
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (lineEnded) {
+                return -1;
+            }
+            if (pos >= limit && !fill()) {
+                lineEnded = true;
+                return -1;
+            }
+            byte b = buffer[pos++];
+            if (b == '\n') {
+                lineEnded = true;
+                return -1;
+            }
+            return b & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (lineEnded) {
+                return -1;
+            }
+            if (pos >= limit && !fill()) {
+                lineEnded = true;
+                return -1;
+            }
+            int count = 0;
+            while (count < length && pos < limit) {
+                byte b = buffer[pos++];
+                if (b == '\n') {
+                    lineEnded = true;
+                    break;
+                }
+                target[offset + count++] = b;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+            // El parser de cada línea la cierra; el cuerpo lo cierra ingestNdjson
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer);
+            if (read <= 0) {
+                return false;
+            }
+            pos = 0;
+            limit = read;
+            return true;
+        }
+    }
+
+    /**
+     * Acumula filas válidas hasta completar un bloque y lo persiste. Sin progressListener conserva todos
+     * los errores para el resumen final; con él, los entrega por tandas.
+     */
+    class IngestionSession {
+        private final User currentUser;
+        private final Consumer<SaleIngestProgress> progressListener;
+        private final List<Sale> chunk = new ArrayList<>();
+        private final List<Long> chunkRows = new ArrayList<>();
+        private final List<SaleRowError> errors = new ArrayList<>();
+        private long received;
+        private long inserted;
+        private long rejected;
+
+        IngestionSession(User currentUser, Consumer<SaleIngestProgress> progressListener) {
+            this.currentUser = currentUser;
+            this.progressListener = progressListener;
+        }
+
+        void accept(long row, SaleRequest request) {
+            received++;
+            SaleRowError error = validate(row, request);
+            if (error != null) {
+                reject(error);
+                return;
+            }
+            Sale sale = Mapper.toSale(request);
+            sale.setCreatedBy(currentUser.getUsername());
+            chunk.add(sale);
+            chunkRows.add(row);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void rejectUnparsable(long row, String reason) {
+            received++;
+            reject(SaleRowError.builder().row(row).message("JSON inválido: " + reason).build());
+        }
+
+        void reject(SaleRowError error) {
+            rejected++;
+            errors.add(error);
+            if (progressListener != null && errors.size() >= chunkSize) {
+                progressListener.accept(progress("PROGRESS"));
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Sale> toPersist = List.copyOf(chunk);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    salesRepository.saveAll(toPersist);
+                    rollupService.addAll(toPersist);
+                    aggregatesCache.evictFor(toPersist);
+                    // Vacía el contexto de persistencia para que la memoria no crezca con el tamaño del lote
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                inserted += toPersist.size();
+            } catch (RuntimeException ex) {
+                log.warn("Falló la persistencia de un bloque de {} ventas: {}", toPersist.size(), ex.getMessage());
+                for (Long row : chunkRows) {
+                    reject(SaleRowError.builder()
+                            .row(row)
+                            .message("No se pudo guardar el bloque que contiene la fila")
+                            .build());
+                }
+            } finally {
+                chunk.clear();
+                chunkRows.clear();
+            }
+            if (progressListener != null) {
+                progressListener.accept(progress("PROGRESS"));
+            }
+        }
+
+        SaleIngestProgress progress(String status) {
+            SaleIngestProgress progress = SaleIngestProgress.builder()
+                    .status(status)
+                    .received(received)
+                    .inserted(inserted)
+                    .rejected(rejected)
+                    .errors(List.copyOf(errors))
+                    .build();
+            errors.clear();
+            return progress;
+        }
+
+        SaleBatchResponse summary() {
+            return SaleBatchResponse.builder()
+                    .received(received)
+                    .inserted(inserted)
+                    .rejected(rejected)
+                    .errors(errors)
+                    .build();
+        }
+
+        private SaleRowError validate(long row, SaleRequest request) {
+            if (request == null) {
+                return SaleRowError.builder().row(row).message("Fila vacía").build();
+            }
+            Set<ConstraintViolation<SaleRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                Map<String, Object> details = new HashMap<>();
+                violations.forEach(v -> details.put(v.getPropertyPath().toString(), v.getMessage()));
+                return SaleRowError.builder().row(row).message("Validación fallida").details(details).build();
+            }
+            if (currentUser.getRole() == Role.BRANCH && !currentUser.getBranch().equalsIgnoreCase(request.getBranch())) {
+                return SaleRowError.builder().row(row).message("No puede registrar ventas para otra sucursal").build();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.demo.service.sales;
+
+import com.example.demo.dto.sales.RollupRebuildResponse;
+import com.example.demo.entity.DailySalesRollupId;
+import com.example.demo.entity.Sale;
+import com.example.demo.repository.DailySalesRollupRepository;
+import com.example.demo.repository.SalesRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mantiene la tabla daily_sales_rollup aplicando deltas dentro de la misma transacción que modifica la venta.
+ * Hasta que el rollup está completo ({@link #isReady()}) los agregados se leen de la tabla de ventas.
+ */
+@Service
+@Slf4j
+@Transactional
+public class SalesRollupService {
+
+    private static final String INSERT_ROW = """
+            INSERT INTO daily_sales_rollup (sale_day, branch, sku, units, revenue_cents)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+    private static final String UNIQUE_VIOLATION = "23505"; // SQLSTATE estándar (PostgreSQL y H2)
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final SalesRepository salesRepository;
+    private final SalesAggregatesCache aggregatesCache;
+    private final EntityManager entityManager;
+    private final boolean rebuildOnStartup;
+
+    private volatile boolean ready;
+
+    public SalesRollupService(DailySalesRollupRepository rollupRepository,
+                              SalesRepository salesRepository,
+                              SalesAggregatesCache aggregatesCache,
+                              EntityManager entityManager,
+                              @Value("${sales.rollup.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.rollupRepository = rollupRepository;
+        this.salesRepository = salesRepository;
+        this.aggregatesCache = aggregatesCache;
+        this.entityManager = entityManager;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    /** true cuando daily_sales_rollup refleja todas las ventas (reconstruido o poblado desde el inicio). */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(Sale sale) {
+        apply(sale, 1);
+    }
+
+    public void remove(Sale sale) {
+        apply(sale, -1);
+    }
+
+    /**
+     * Suma un lote de ventas nuevas agrupando antes por clave, para emitir un único UPDATE por (día, sucursal, SKU).
+     */
+    public void addAll(Collection<Sale> sales) {
+        Map<DailySalesRollupId, Delta> deltas = new HashMap<>();
+        for (Sale sale : sales) {
+            deltas.merge(keyOf(sale), new Delta(sale.getUnits(), centsOf(sale)), Delta::plus);
+        }
+        deltas.forEach((key, delta) -> applyDelta(key, delta.units(), delta.revenueCents()));
+    }
+
+    /**
+     * Mueve el aporte de una venta editada: si cambió el día, la sucursal o el SKU se resta de la fila
+     * anterior y se suma en la nueva; si no, se aplica solo la diferencia.
+     */
+    public void move(Sale before, Sale after) {
+        DailySalesRollupId previousKey = keyOf(before);
+        DailySalesRollupId currentKey = keyOf(after);
+        if (previousKey.equals(currentKey)) {
+            applyDelta(currentKey,
+                    (long) after.getUnits() - before.getUnits(),
+                    centsOf(after) - centsOf(before));
+        } else {
+            remove(before);
+            add(after);
+        }
+    }
+
+    public RollupRebuildResponse rebuild() {
+        long start = System.currentTimeMillis();
+        rollupRepository.deleteAllInBatch();
+        int rows = rollupRepository.rebuildFromSales();
+        aggregatesCache.clear();
+        markReadyAfterCommit();
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Rollup diario reconstruido: {} filas en {} ms", rows, elapsed);
+        return new RollupRebuildResponse(rows, elapsed);
+    }
+
+    /**
+     * Con ventas previas y el rollup vacío (base existente, tabla recién creada) se reconstruye una vez;
+     * {@code sales.rollup.rebuild-on-startup} fuerza la reconstrucción en cada arranque.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup || (!rollupRepository.hasRows() && salesRepository.hasRows())) {
+            rebuild();
+        } else {
+            ready = true;
+        }
+    }
+
+    // Antes del commit otra transacción leería el rollup todavía vacío
+    private void markReadyAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ready = true;
+                }
+            });
+        } else {
+            ready = true;
+        }
+    }
+
+    private void apply(Sale sale, int sign) {
+        applyDelta(keyOf(sale), (long) sign * sale.getUnits(), sign * centsOf(sale));
+    }
+
+    /**
+     * UPDATE de la fila existente; si la clave es nueva, INSERT dentro de un savepoint. Si otra transacción
+     * insertó la misma clave a la vez, solo se deshace el savepoint y el delta se suma con un nuevo UPDATE,
+     * sin abortar la venta ni el lote que lo pidió.
+     */
+    private void applyDelta(DailySalesRollupId key, long units, long revenueCents) {
+        if (units == 0 && revenueCents == 0) {
+            return;
+        }
+        if (update(key, units, revenueCents) > 0 || insertIfAbsent(key, units, revenueCents)) {
+            return;
+        }
+        if (update(key, units, revenueCents) == 0) {
+            throw new IllegalStateException("No se pudo aplicar el delta del rollup para " + key);
+        }
+    }
+
+    private int update(DailySalesRollupId key, long units, long revenueCents) {
+        return rollupRepository.applyDelta(key.getSaleDay(), key.getBranch(), key.getSku(), units, revenueCents);
+    }
+
+    // JDBC directo: un error de Hibernate marcaría toda la transacción como rollback-only
+    private boolean insertIfAbsent(DailySalesRollupId key, long units, long revenueCents) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_ROW)) {
+                insert.setDate(1, Date.valueOf(key.getSaleDay()));
+                insert.setString(2, key.getBranch());
+                insert.setString(3, key.getSku());
+                insert.setLong(4, units);
+                insert.setLong(5, revenueCents);
+                insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private static DailySalesRollupId keyOf(Sale sale) {
+        Objects.requireNonNull(sale.getSoldAt(), "soldAt");
+        return new DailySalesRollupId(sale.getSoldAt().toLocalDate(), sale.getBranch(), sale.getSku());
+    }
+
+    // Mismo redondeo que rebuildFromSales: ROUND(units * price * 100) por venta
+    private static long centsOf(Sale sale) {
+        return Math.round(sale.getUnits() * sale.getPrice() * 100);
+    }
+
+    private record Delta(long units, long revenueCents) {
+        Delta plus(Delta other) {
+            return new Delta(units + other.units, revenueCents + other.revenueCents);
+        }
+    }
+}
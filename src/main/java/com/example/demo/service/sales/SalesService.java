@@ -1,5 +1,6 @@
 package com.example.demo.service.sales;
 
+import com.example.demo.dto.sales.SaleCursorPage;
 import com.example.demo.dto.sales.SaleRequest;
 import com.example.demo.dto.sales.SaleResponse;
 import com.example.demo.entity.Role;
@@ -9,16 +10,17 @@ import com.example.demo.exception.BusinessException;
 import com.example.demo.repository.SalesRepository;
 import com.example.demo.util.DateRange;
 import com.example.demo.util.Mapper;
+import com.example.demo.util.SaleCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -26,7 +28,12 @@ import java.util.List;
 @Transactional
 public class SalesService {
 
+    private static final Sort LIST_SORT = Sort.by(Sort.Order.desc("soldAt"), Sort.Order.desc("id"));
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final SalesRepository salesRepository;
+    private final SalesRollupService rollupService;
+    private final SalesAggregatesCache aggregatesCache;
 
     public SaleResponse create(SaleRequest request, User currentUser) {
         if (currentUser.getRole() == Role.BRANCH && !currentUser.getBranch().equalsIgnoreCase(request.getBranch())) {
@@ -35,6 +42,8 @@ public class SalesService {
         Sale sale = Mapper.toSale(request);
         sale.setCreatedBy(currentUser.getUsername());
         Sale saved = salesRepository.save(sale);
+        rollupService.add(saved);
+        aggregatesCache.evictFor(saved);
         return Mapper.toResponse(saved);
     }
 
@@ -48,33 +57,50 @@ public class SalesService {
 
     @Transactional(readOnly = true)
     public Page<SaleResponse> list(LocalDate from, LocalDate to, String branchFilter, Pageable pageable, User currentUser) {
+        checkPageSize(pageable.getPageSize());
         DateRange range = DateRange.of(from, to);
-        List<Sale> sales = salesRepository.findByDateRange(range.getFrom(), range.getTo());
-
-        if (currentUser.getRole() == Role.BRANCH) {
-            sales = sales.stream()
-                    .filter(s -> s.getBranch().equalsIgnoreCase(currentUser.getBranch()))
-                    .toList();
-        } else if (branchFilter != null && !branchFilter.isBlank()) {
-            sales = sales.stream()
-                    .filter(s -> s.getBranch().equalsIgnoreCase(branchFilter))
-                    .toList();
-        }
+        String branch = currentUser.getRole() == Role.BRANCH ? currentUser.getBranch() : branchFilter;
 
-        sales = sales.stream()
-                .sorted(Comparator.comparing(Sale::getSoldAt).reversed())
-                .toList();
+        // Filtro, orden y paginación se resuelven en SQL: la memoria queda acotada al tamaño de página
+        Pageable sorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), LIST_SORT);
+        Page<Sale> sales = (branch != null && !branch.isBlank())
+                ? salesRepository.findBySoldAtBetweenAndBranchKey(range.getFrom(), range.getTo(),
+                        Sale.normalizeBranch(branch), sorted)
+                : salesRepository.findBySoldAtBetween(range.getFrom(), range.getTo(), sorted);
 
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), sales.size());
-        if (start > end) {
-            start = end;
-        }
-        List<SaleResponse> content = sales.subList(start, end).stream()
-                .map(Mapper::toResponse)
-                .toList();
+        return sales.map(Mapper::toResponse);
+    }
+
+    @Transactional(readOnly = true)
+    public SaleCursorPage scroll(LocalDate from, LocalDate to, String branchFilter, String after, int size, User currentUser) {
+        checkPageSize(size);
+        DateRange range = DateRange.of(from, to);
+        String branch = currentUser.getRole() == Role.BRANCH ? currentUser.getBranch() : branchFilter;
+        SaleCursor cursor = (after != null && !after.isBlank()) ? SaleCursor.decode(after) : SaleCursor.start(range);
+
+        // Se pide un registro extra para saber si existe una página siguiente sin hacer COUNT
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Sale> window = (branch != null && !branch.isBlank())
+                ? salesRepository.findWindowByBranch(range.getFrom(), range.getTo(), Sale.normalizeBranch(branch),
+                        cursor.getSoldAt(), cursor.getId(), limit)
+                : salesRepository.findWindow(range.getFrom(), range.getTo(),
+                        cursor.getSoldAt(), cursor.getId(), limit);
+
+        boolean hasNext = window.size() > size;
+        List<Sale> content = hasNext ? window.subList(0, size) : window;
 
-        return new PageImpl<>(content, pageable, sales.size());
+        return SaleCursorPage.builder()
+                .content(content.stream().map(Mapper::toResponse).toList())
+                .size(content.size())
+                .nextCursor(hasNext ? SaleCursor.of(content.get(content.size() - 1)).encode() : null)
+                .build();
+    }
+
+    // Con un tope la página (y el size + 1 del cursor) no desborda ni trae la tabla entera a memoria
+    private static void checkPageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
     }
 
     public SaleResponse update(String id, SaleRequest request, User currentUser) {
@@ -85,6 +111,7 @@ public class SalesService {
         if (currentUser.getRole() == Role.BRANCH && !currentUser.getBranch().equalsIgnoreCase(request.getBranch())) {
             throw new BusinessException(HttpStatus.FORBIDDEN, "No puede cambiar la sucursal de la venta");
         }
+        Sale before = sale.toBuilder().build();
         if (currentUser.getRole() == Role.CENTRAL) {
             sale.setBranch(request.getBranch());
         }
@@ -93,6 +120,8 @@ public class SalesService {
         sale.setPrice(request.getPrice());
         sale.setSoldAt(request.getSoldAt());
         Sale saved = salesRepository.save(sale);
+        rollupService.move(before, saved);
+        aggregatesCache.evictFor(List.of(before, saved));
         return Mapper.toResponse(saved);
     }
 
@@ -103,6 +132,8 @@ public class SalesService {
         Sale sale = salesRepository.findById(id)
                 .orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, "Venta no encontrada"));
         salesRepository.delete(sale);
+        rollupService.remove(sale);
+        aggregatesCache.evictFor(sale);
     }
 
     private void validateAccessToSale(User currentUser, Sale sale) {
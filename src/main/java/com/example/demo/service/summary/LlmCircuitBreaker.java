@@ -0,0 +1,99 @@
+package com.example.demo.service.summary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker del LLM: tras {@code llm.circuit.failure-threshold} fallos seguidos se abre y
+ * los reportes usan el resumen de respaldo sin esperar al endpoint. Pasado
+ * {@code llm.circuit.open-duration} deja pasar una única llamada de prueba (half-open).
+ */
+@Component
+@Slf4j
+public class LlmCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Counter shortCircuited;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public LlmCircuitBreaker(@Value("${llm.circuit.failure-threshold:5}") int failureThreshold,
+                             @Value("${llm.circuit.open-duration:30s}") Duration openDuration,
+                             MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.shortCircuited = Counter.builder("llm.circuit.short_circuited")
+                .description("Llamadas al LLM evitadas por el circuit breaker")
+                .register(meterRegistry);
+        Gauge.builder("llm.circuit.open", this, cb -> cb.state() == State.CLOSED ? 0 : 1)
+                .description("1 si el circuit breaker del LLM está abierto o en prueba")
+                .register(meterRegistry);
+    }
+
+    /** Indica si la llamada puede salir; si devuelve true, el llamador debe reportar el resultado. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration.toMillis()) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        boolean allowed = switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    yield false;
+                }
+                probeInFlight = true;
+                yield true;
+            }
+        };
+        if (!allowed) {
+            shortCircuited.increment();
+        }
+        return allowed;
+    }
+
+    /** Devuelve un permiso cuya llamada no llegó a salir (p. ej. sin cuota): no cuenta como éxito ni fallo. */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Circuit breaker del LLM cerrado: el endpoint respondió");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Circuit breaker del LLM abierto tras {} fallos seguidos", consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -1,80 +1,349 @@
 package com.example.demo.service.summary;
 
 import com.example.demo.dto.sales.SalesAggregates;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class LlmClient {
 
+    static final String SYSTEM_PROMPT = "Eres un analista que escribe resúmenes breves y claros para emails corporativos.";
+    private static final int MAX_TOKENS = 200;
+    private static final int MAX_BATCH_TOKENS = 4000;
+    private static final ObjectMapper JSON = new ObjectMapper();
+
     private final WebClient githubModelsWebClient;
+    private final LlmSummaryCache summaryCache;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final LlmRateLimiter rateLimiter;
+    private final String modelId;
+    private final String githubToken;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+
+    public LlmClient(WebClient githubModelsWebClient,
+                     LlmSummaryCache summaryCache,
+                     LlmCircuitBreaker circuitBreaker,
+                     LlmRateLimiter rateLimiter,
+                     @Value("${github.model.id:gpt-4o-mini}") String modelId,
+                     @Value("${github.token:}") String githubToken,
+                     @Value("${llm.timeout:10s}") Duration timeout,
+                     @Value("${llm.retry.max-retries:2}") int maxRetries,
+                     @Value("${llm.retry.min-backoff:300ms}") Duration minBackoff,
+                     @Value("${llm.retry.max-backoff:3s}") Duration maxBackoff,
+                     @Value("${llm.retry.jitter:0.5}") double jitter) {
+        this.githubModelsWebClient = githubModelsWebClient;
+        this.summaryCache = summaryCache;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiter = rateLimiter;
+        this.modelId = modelId;
+        this.githubToken = githubToken;
+        this.timeout = timeout;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+    }
 
-    @Value("${github.model.id:gpt-4o-mini}")
-    private String modelId;
+    /**
+     * Variante bloqueante para los workers de reportes. Siempre termina: cada intento tiene
+     * timeout, la espera por cuota y los reintentos están acotados, y ante cualquier fallo devuelve
+     * el resumen de respaldo.
+     */
+    public String generateSummary(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to,
+                                  boolean premium) {
+        return summarize(aggregates, branch, from, to, premium).block();
+    }
+
+    /**
+     * Resumen sin bloquear hilos; nunca emite error, en el peor caso emite el resumen de respaldo.
+     * Los reportes premium pasan primero en la cola de cuota del LLM.
+     */
+    public Mono<String> summarize(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to,
+                                  boolean premium) {
+        SummaryInput input = new SummaryInput(aggregates, branch, from, to);
+        if (!enabled()) {
+            return Mono.fromSupplier(() -> fallbackSummary(input));
+        }
+        String cacheKey = cacheKey(input);
+        // La caché puede consultar la base, así que no debe correr en un hilo del event loop
+        return Mono.fromCallable(() -> summaryCache.get(cacheKey))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(cached -> cached.map(Mono::just).orElseGet(() -> complete(buildPrompt(input), MAX_TOKENS, premium)
+                        // Solo se cachean respuestas reales del modelo; el fallback se recalcula siempre
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(summary -> summaryCache.put(cacheKey, modelId, summary))))
+                .onErrorResume(err -> {
+                    log.warn("Error procesando respuesta del modelo: {}", err.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> fallbackSummary(input)));
+    }
 
-    @Value("${github.token:}")
-    private String githubToken;
+    /**
+     * Resume varias sucursales con una sola llamada: los datos van numerados en un prompt y el modelo
+     * responde un arreglo JSON. Devuelve un resumen por entrada, en el mismo orden. Si la llamada falla
+     * se usa el respaldo de cada entrada; si la respuesta no se puede interpretar, las entradas que
+     * faltan se piden por separado.
+     */
+    public Mono<List<String>> summarizeBatch(List<SummaryInput> inputs, boolean premium) {
+        if (inputs.size() == 1) {
+            SummaryInput only = inputs.get(0);
+            return summarize(only.aggregates(), only.branch(), only.from(), only.to(), premium).map(List::of);
+        }
+        if (!enabled()) {
+            return Mono.fromSupplier(() -> inputs.stream().map(this::fallbackSummary).toList());
+        }
+        List<String> keys = inputs.stream().map(this::cacheKey).toList();
+        return Mono.fromCallable(() -> keys.stream().map(key -> summaryCache.get(key).orElse(null)).toList())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(cached -> {
+                    List<Integer> missing = new ArrayList<>();
+                    for (int i = 0; i < inputs.size(); i++) {
+                        if (cached.get(i) == null) {
+                            missing.add(i);
+                        }
+                    }
+                    if (missing.isEmpty()) {
+                        return Mono.just(cached);
+                    }
+                    List<SummaryInput> pending = missing.stream().map(inputs::get).toList();
+                    return completeBatch(pending, premium).map(generated -> {
+                        List<String> merged = new ArrayList<>(cached);
+                        for (int i = 0; i < missing.size(); i++) {
+                            merged.set(missing.get(i), generated.get(i));
+                        }
+                        return merged;
+                    });
+                })
+                .onErrorResume(err -> {
+                    log.warn("Error procesando el lote de resúmenes: {}", err.getMessage());
+                    return Mono.fromSupplier(() -> inputs.stream().map(this::fallbackSummary).toList());
+                });
+    }
 
-    public String generateSummary(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to) {
-        if (!StringUtils.hasText(githubToken) || githubModelsWebClient == null) {
-            return fallbackSummary(aggregates, branch, from, to);
+    private Mono<List<String>> completeBatch(List<SummaryInput> inputs, boolean premium) {
+        if (inputs.size() == 1) {
+            SummaryInput only = inputs.get(0);
+            return summarize(only.aggregates(), only.branch(), only.from(), only.to(), premium).map(List::of);
         }
+        int maxTokens = Math.min(MAX_TOKENS * inputs.size(), MAX_BATCH_TOKENS);
+        String prompt = buildBatchPrompt(inputs);
+        // Las respuestas del lote se cachean bajo el prompt que realmente se envió más la posición,
+        // no bajo el prompt individual de cada sucursal, que el modelo nunca vio
+        List<String> keys = IntStream.range(0, inputs.size()).mapToObj(i -> batchCacheKey(prompt, i)).toList();
+        return Mono.fromCallable(() -> keys.stream().map(key -> summaryCache.get(key).orElse(null)).toList())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(cached -> !cached.contains(null) ? Mono.just(cached) : complete(prompt, maxTokens, premium)
+                        .map(content -> parseBatch(content, inputs.size()))
+                        .flatMap(parsed -> Flux.range(0, inputs.size())
+                                .flatMapSequential(i -> {
+                                    SummaryInput input = inputs.get(i);
+                                    String summary = parsed.get(i);
+                                    if (summary == null) {
+                                        return summarize(input.aggregates(), input.branch(), input.from(), input.to(), premium);
+                                    }
+                                    return Mono.fromCallable(() -> {
+                                        summaryCache.put(keys.get(i), modelId, summary);
+                                        return summary;
+                                    }).subscribeOn(Schedulers.boundedElastic());
+                                })
+                                .collectList()))
+                // Sin respuesta del modelo (error, cuota o circuito abierto) repetir por entrada no ayuda
+                .switchIfEmpty(Mono.fromSupplier(() -> inputs.stream().map(this::fallbackSummary).toList()));
+    }
+
+    /** Índice de cada resumen interpretado; null en las posiciones que el modelo no devolvió. */
+    private List<String> parseBatch(String content, int expected) {
+        List<String> summaries = new ArrayList<>(Collections.nCopies(expected, null));
+        int start = content.indexOf('[');
+        int end = content.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            log.warn("La respuesta del lote no contiene un arreglo JSON");
+            return summaries;
+        }
+        try {
+            JsonNode items = JSON.readTree(content.substring(start, end + 1));
+            for (int position = 0; position < items.size(); position++) {
+                JsonNode item = items.get(position);
+                int index = item.hasNonNull("id") ? item.get("id").asInt() - 1 : position;
+                String summary = item.isTextual() ? item.asText() : item.path("resumen").asText(null);
+                if (index >= 0 && index < expected && StringUtils.hasText(summary)) {
+                    summaries.set(index, summary.trim());
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            log.warn("No se pudo interpretar la respuesta del lote: {}", ex.getOriginalMessage());
+        }
+        return summaries;
+    }
+
+    private boolean enabled() {
+        return StringUtils.hasText(githubToken) && githubModelsWebClient != null;
+    }
+
+    private String cacheKey(SummaryInput input) {
+        return LlmSummaryCache.key(modelId, SYSTEM_PROMPT, buildPrompt(input));
+    }
+
+    private String batchCacheKey(String batchPrompt, int index) {
+        return LlmSummaryCache.key(modelId, SYSTEM_PROMPT, batchPrompt + '\u0000' + index);
+    }
+
+    /** Contenido de la respuesta del modelo, o vacío si no se pudo obtener. */
+    private Mono<String> complete(String prompt, int maxTokens, boolean premium) {
+        int cost = LlmRateLimiter.estimateTokens(maxTokens, SYSTEM_PROMPT, prompt);
+        return Mono.defer(() -> {
+            // Con el circuito abierto no se espera cuota ni se consume presupuesto
+            if (!circuitBreaker.tryAcquire()) {
+                log.debug("Circuit breaker del LLM abierto, se usa el resumen de respaldo");
+                return Mono.empty();
+            }
+            AtomicBoolean dispatched = new AtomicBoolean();
+            return rateLimiter.acquire(cost, premium)
+                    .flatMap(granted -> {
+                        if (!granted) {
+                            // Si era la prueba half-open, otra llamada debe poder hacerla
+                            circuitBreaker.release();
+                            return Mono.empty();
+                        }
+                        dispatched.set(true);
+                        return send(prompt, maxTokens, cost);
+                    })
+                    .doOnCancel(() -> {
+                        if (!dispatched.get()) {
+                            circuitBreaker.release();
+                        }
+                    });
+        });
+    }
+
+    private Mono<String> send(String prompt, int maxTokens, int cost) {
         Map<String, Object> payload = Map.of(
                 "model", modelId,
                 "messages", List.of(
-                        Map.of("role", "system", "content", "Eres un analista que escribe resúmenes breves y claros para emails corporativos."),
-                        Map.of("role", "user", "content", buildPrompt(aggregates, branch, from, to))
+                        Map.of("role", "system", "content", SYSTEM_PROMPT),
+                        Map.of("role", "user", "content", prompt)
                 ),
-                "max_tokens", 200
+                "max_tokens", maxTokens
         );
-        try {
-            Map<String, Object> response = githubModelsWebClient.post()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(payload)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .onErrorResume(err -> {
-                        log.warn("Fallo al invocar GitHub Models: {}", err.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-            if (response == null) {
-                return fallbackSummary(aggregates, branch, from, to);
+        AtomicBoolean reported = new AtomicBoolean();
+        AtomicInteger attempts = new AtomicInteger();
+        return Mono.defer(() -> {
+                    if (attempts.getAndIncrement() > 0) {
+                        rateLimiter.charge(cost);
+                    }
+                    return githubModelsWebClient.post()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(payload)
+                            .retrieve()
+                            .bodyToMono(Map.class)
+                            .timeout(timeout);
+                })
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(jitter)
+                        .filter(LlmClient::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnSuccess(response -> record(reported, true))
+                .doOnError(err -> record(reported, false))
+                // Si quien espera cancela, se cuenta como fallo para no dejar colgada la prueba half-open
+                .doOnCancel(() -> record(reported, false))
+                .onErrorResume(err -> {
+                    log.warn("Fallo al invocar GitHub Models: {}", err.getMessage());
+                    return Mono.empty();
+                })
+                .mapNotNull(LlmClient::extractContent);
+    }
+
+    // Cada llamada informa al circuit breaker una sola vez, aunque lleguen éxito y cancelación
+    private void record(AtomicBoolean reported, boolean success) {
+        if (reported.compareAndSet(false, true)) {
+            if (success) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
             }
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-            if (choices != null && !choices.isEmpty()) {
-                Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                if (message != null && message.get("content") != null) {
-                    return message.get("content").toString();
-                }
+        }
+    }
+
+    // Se reintentan timeouts, errores de conexión, 429 y 5xx; el resto de 4xx no mejora reintentando
+    private static boolean isTransient(Throwable err) {
+        if (err instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError()
+                    || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return err instanceof TimeoutException || err instanceof WebClientRequestException;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String extractContent(Map<String, Object> response) {
+        List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
+        if (choices != null && !choices.isEmpty()) {
+            Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
+            if (message != null && message.get("content") != null) {
+                return message.get("content").toString();
             }
-        } catch (Exception ex) {
-            log.warn("Error procesando respuesta del modelo: {}", ex.getMessage());
         }
-        return fallbackSummary(aggregates, branch, from, to);
+        return null;
+    }
+
+    private String buildPrompt(SummaryInput input) {
+        return "Con estos datos: " + describe(input) + ". Devuelve un resumen ≤120 palabras para enviar por email en español.";
+    }
+
+    private String buildBatchPrompt(List<SummaryInput> inputs) {
+        StringBuilder sb = new StringBuilder("Para cada sucursal de la lista escribe un resumen ≤120 palabras para enviar por email en español.\n")
+                .append("Responde solo con un arreglo JSON de objetos {\"id\": <número>, \"resumen\": \"<texto>\"}, uno por sucursal y en el mismo orden.\n");
+        for (int i = 0; i < inputs.size(); i++) {
+            sb.append(i + 1).append(". ").append(describe(inputs.get(i))).append('\n');
+        }
+        return sb.toString();
     }
 
-    private String buildPrompt(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to) {
-        return "Con estos datos: totalUnits=" + aggregates.getTotalUnits() +
+    private String describe(SummaryInput input) {
+        SalesAggregates aggregates = input.aggregates();
+        return "totalUnits=" + aggregates.getTotalUnits() +
                 ", totalRevenue=" + String.format("%.2f", aggregates.getTotalRevenue()) +
                 ", topSku=" + (aggregates.getTopSku() != null ? aggregates.getTopSku() : "N/A") +
-                ", topBranch=" + (aggregates.getTopBranch() != null ? aggregates.getTopBranch() : branch) +
-                ". Periodo: " + from + " a " + to + ". Devuelve un resumen ≤120 palabras para enviar por email en español.";
+                ", topBranch=" + (aggregates.getTopBranch() != null ? aggregates.getTopBranch() : input.branch()) +
+                ". Periodo: " + input.from() + " a " + input.to();
     }
 
-    private String fallbackSummary(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to) {
+    private String fallbackSummary(SummaryInput input) {
+        SalesAggregates aggregates = input.aggregates();
+        String branch = input.branch();
+        LocalDate from = input.from();
+        LocalDate to = input.to();
         StringBuilder sb = new StringBuilder();
         sb.append("Resumen automático Oreo (fallback) del ")
                 .append(from)
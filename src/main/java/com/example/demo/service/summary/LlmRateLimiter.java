@@ -0,0 +1,184 @@
+package com.example.demo.service.summary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita las llamadas al LLM a la cuota de GitHub Models: un bucket de requests y otro de tokens
+ * por minuto, que se rellenan de forma continua. Las llamadas sin presupuesto esperan en una cola
+ * (primero los reportes premium, después por orden de llegada) hasta {@code llm.rate.max-wait};
+ * solo el primero de la cola puede consumir, así una llamada grande no queda postergada por las chicas.
+ */
+@Component
+@Slf4j
+public class LlmRateLimiter {
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final double requestsPerMinute;
+    private final double tokensPerMinute;
+    private final Duration maxWait;
+    private final Timer waitTimer;
+    private final Counter expired;
+
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing(Waiter::premium).reversed().thenComparingLong(Waiter::sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private double requests;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private Disposable wakeUp;
+
+    public LlmRateLimiter(@Value("${llm.rate.requests-per-minute:15}") double requestsPerMinute,
+                          @Value("${llm.rate.tokens-per-minute:12000}") double tokensPerMinute,
+                          @Value("${llm.rate.max-wait:60s}") Duration maxWait,
+                          MeterRegistry meterRegistry) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxWait = maxWait;
+        this.requests = requestsPerMinute;
+        this.tokens = tokensPerMinute;
+        this.waitTimer = Timer.builder("llm.rate.wait")
+                .description("Espera por presupuesto de la cuota del LLM")
+                .register(meterRegistry);
+        this.expired = Counter.builder("llm.rate.expired")
+                .description("Llamadas al LLM que agotaron la espera por cuota")
+                .register(meterRegistry);
+        Gauge.builder("llm.rate.queued", this, LlmRateLimiter::queued)
+                .description("Llamadas al LLM esperando cuota")
+                .register(meterRegistry);
+    }
+
+    /** Estimación conservadora: ~4 caracteres por token más el encabezado de cada mensaje. */
+    public static int estimateTokens(int maxTokens, String... messages) {
+        int estimate = maxTokens;
+        for (String message : messages) {
+            estimate += (message.length() + 3) / 4 + 4;
+        }
+        return estimate;
+    }
+
+    /**
+     * Reserva una request y {@code cost} tokens. Emite {@code true} al obtener presupuesto o
+     * {@code false} si se agota la espera máxima.
+     */
+    public Mono<Boolean> acquire(int cost, boolean premium) {
+        if (unlimited()) {
+            return Mono.just(true);
+        }
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter(Math.min(cost, tokensPerMinute), premium, sequence.getAndIncrement(),
+                    System.nanoTime(), Sinks.one());
+            synchronized (this) {
+                queue.add(waiter);
+            }
+            drain();
+            return waiter.sink().asMono()
+                    .timeout(maxWait, Mono.fromSupplier(() -> giveUp(waiter)))
+                    .doOnCancel(() -> remove(waiter));
+        });
+    }
+
+    /** Descuenta el presupuesto sin esperar; lo usan los reintentos, que ya ocupan su lugar en la cola. */
+    public void charge(int cost) {
+        if (unlimited()) {
+            return;
+        }
+        synchronized (this) {
+            refill();
+            requests -= 1;
+            tokens -= Math.min(cost, tokensPerMinute);
+        }
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private boolean unlimited() {
+        return requestsPerMinute <= 0 || tokensPerMinute <= 0;
+    }
+
+    private boolean giveUp(Waiter waiter) {
+        if (remove(waiter)) {
+            expired.increment();
+            log.warn("Se agotó la espera de {} por cuota del LLM", maxWait);
+            return false;
+        }
+        // Se concedió justo al vencer el plazo: el presupuesto ya se descontó, se usa
+        return true;
+    }
+
+    private boolean remove(Waiter waiter) {
+        boolean removed;
+        synchronized (this) {
+            removed = queue.remove(waiter);
+        }
+        if (removed) {
+            // Si era el primero, los siguientes pueden tener presupuesto
+            drain();
+        }
+        return removed;
+    }
+
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            refill();
+            Waiter head;
+            while ((head = queue.peek()) != null) {
+                if (requests >= 1 && tokens >= head.cost()) {
+                    requests -= 1;
+                    tokens -= head.cost();
+                    granted.add(queue.poll());
+                } else {
+                    scheduleWakeUp(head);
+                    break;
+                }
+            }
+        }
+        // Se emite fuera del lock porque la llamada HTTP arranca en el mismo hilo
+        long now = System.nanoTime();
+        for (Waiter waiter : granted) {
+            waitTimer.record(now - waiter.enqueuedAt(), TimeUnit.NANOSECONDS);
+            waiter.sink().tryEmitValue(true);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double minutes = (double) (now - refilledAt) / NANOS_PER_MINUTE;
+        refilledAt = now;
+        requests = Math.min(requestsPerMinute, requests + minutes * requestsPerMinute);
+        tokens = Math.min(tokensPerMinute, tokens + minutes * tokensPerMinute);
+    }
+
+    private void scheduleWakeUp(Waiter head) {
+        double missingMinutes = Math.max((1 - requests) / requestsPerMinute, (head.cost() - tokens) / tokensPerMinute);
+        long delayNanos = Math.max(1, (long) Math.ceil(missingMinutes * NANOS_PER_MINUTE));
+        if (wakeUp != null) {
+            wakeUp.dispose();
+        }
+        wakeUp = Schedulers.parallel().schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private record Waiter(double cost, boolean premium, long sequence, long enqueuedAt, Sinks.One<Boolean> sink) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Junta los resúmenes que se piden casi al mismo tiempo (p. ej. cuando central pide todas las
+ * sucursales) en una sola llamada al LLM. Un lote sale al llenarse ({@code llm.batch.max-size}) o
+ * al vencer la ventana ({@code llm.batch.window}) desde el primer pedido.
+ */
+@Component
+@Slf4j
+public class LlmSummaryBatcher {
+
+    private final LlmClient llmClient;
+    private final int maxSize;
+    private final Duration window;
+    private final DistributionSummary batchSizes;
+
+    private List<Pending> pending = new ArrayList<>();
+    private Disposable scheduledFlush;
+
+    public LlmSummaryBatcher(LlmClient llmClient,
+                             @Value("${llm.batch.max-size:8}") int maxSize,
+                             @Value("${llm.batch.window:150ms}") Duration window,
+                             MeterRegistry meterRegistry) {
+        this.llmClient = llmClient;
+        this.maxSize = maxSize;
+        this.window = window;
+        this.batchSizes = DistributionSummary.builder("llm.batch.size")
+                .description("Resúmenes enviados por llamada al LLM")
+                .register(meterRegistry);
+    }
+
+    /** Variante bloqueante para los workers de reportes. */
+    public String generateSummary(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to,
+                                  boolean premium) {
+        return summarize(aggregates, branch, from, to, premium).block();
+    }
+
+    public Mono<String> summarize(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to,
+                                  boolean premium) {
+        if (maxSize <= 1 || window.isZero()) {
+            return llmClient.summarize(aggregates, branch, from, to, premium);
+        }
+        return Mono.defer(() -> {
+            Pending request = new Pending(new SummaryInput(aggregates, branch, from, to), premium, Sinks.one());
+            List<Pending> full = null;
+            synchronized (this) {
+                pending.add(request);
+                if (pending.size() == 1) {
+                    scheduledFlush = Schedulers.parallel().schedule(this::flushWindow, window.toNanos(), TimeUnit.NANOSECONDS);
+                }
+                if (pending.size() >= maxSize) {
+                    scheduledFlush.dispose();
+                    full = take();
+                }
+            }
+            if (full != null) {
+                flush(full);
+            }
+            return request.sink().asMono();
+        });
+    }
+
+    private void flushWindow() {
+        List<Pending> batch;
+        synchronized (this) {
+            batch = take();
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private List<Pending> take() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void flush(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        // El lote hereda la prioridad de su pedido más urgente
+        boolean premium = batch.stream().anyMatch(Pending::premium);
+        List<SummaryInput> inputs = batch.stream().map(Pending::input).toList();
+        llmClient.summarizeBatch(inputs, premium).subscribe(
+                summaries -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).sink().tryEmitValue(summaries.get(i));
+                    }
+                },
+                err -> {
+                    log.error("Falló el lote de {} resúmenes", batch.size(), err);
+                    batch.forEach(request -> request.sink().tryEmitError(err));
+                });
+    }
+
+    private record Pending(SummaryInput input, boolean premium, Sinks.One<String> sink) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.entity.LlmSummaryCacheEntry;
+import com.example.demo.repository.LlmSummaryCacheRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Caché de resúmenes del LLM direccionada por contenido: la clave es el SHA-256 de
+ * (modelo, prompt de sistema, prompt de usuario), así que dos reportes con los mismos datos
+ * reutilizan la respuesta. Tiene un nivel en memoria y uno opcional en base de datos que
+ * sobrevive a reinicios; ambos expiran con {@code llm.cache.ttl}.
+ */
+@Component
+@Slf4j
+public class LlmSummaryCache {
+
+    private static final int MAX_SUMMARY_LENGTH = 8000;
+
+    private final Cache<String, String> memory;
+    private final LlmSummaryCacheRepository repository;
+    private final Duration ttl;
+    private final boolean dbEnabled;
+    private final int dbMaxEntries;
+    private final Counter memoryHits;
+    private final Counter dbHits;
+    private final Counter misses;
+
+    public LlmSummaryCache(LlmSummaryCacheRepository repository,
+                           MeterRegistry meterRegistry,
+                           @Value("${llm.cache.memory.max-size:500}") long memoryMaxSize,
+                           @Value("${llm.cache.ttl:24h}") Duration ttl,
+                           @Value("${llm.cache.db.enabled:true}") boolean dbEnabled,
+                           @Value("${llm.cache.db.max-entries:10000}") int dbMaxEntries) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.dbEnabled = dbEnabled;
+        this.dbMaxEntries = dbMaxEntries;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(memoryMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "llmSummaries");
+        this.memoryHits = lookups(meterRegistry, "memory");
+        this.dbHits = lookups(meterRegistry, "db");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    private static Counter lookups(MeterRegistry registry, String result) {
+        return Counter.builder("llm.summary.cache.lookups")
+                .description("Búsquedas en la caché de resúmenes del LLM por resultado")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public static String key(String modelId, String systemPrompt, String userPrompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // El separador evita que ("ab", "c") y ("a", "bc") compartan clave
+            String material = modelId + '\u0000' + systemPrompt + '\u0000' + userPrompt;
+            return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        String cached = memory.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return Optional.of(cached);
+        }
+        if (dbEnabled) {
+            Optional<String> stored = readStored(key);
+            if (stored.isPresent()) {
+                dbHits.increment();
+                memory.put(key, stored.get());
+                return stored;
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String modelId, String summary) {
+        if (summary == null || summary.isBlank() || summary.length() > MAX_SUMMARY_LENGTH) {
+            return;
+        }
+        memory.put(key, summary);
+        if (dbEnabled) {
+            try {
+                repository.save(LlmSummaryCacheEntry.builder()
+                        .key(key)
+                        .modelId(modelId)
+                        .summary(summary)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+            } catch (Exception ex) {
+                // La caché persistente es una optimización: si falla, el reporte sigue con el resumen en mano
+                log.warn("No se pudo persistir el resumen {} en caché: {}", key, ex.getMessage());
+            }
+        }
+    }
+
+    private Optional<String> readStored(String key) {
+        try {
+            LocalDateTime oldest = LocalDateTime.now().minus(ttl);
+            return repository.findById(key)
+                    .filter(entry -> entry.getCreatedAt().isAfter(oldest))
+                    .map(LlmSummaryCacheEntry::getSummary);
+        } catch (Exception ex) {
+            log.warn("No se pudo leer la caché persistente de resúmenes: {}", ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Borra las entradas expiradas y, si se supera el máximo, las más antiguas. */
+    @Scheduled(fixedDelayString = "${llm.cache.db.prune-interval-ms:3600000}")
+    @Transactional
+    public void prune() {
+        if (!dbEnabled) {
+            return;
+        }
+        int expired = repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        long excess = repository.count() - dbMaxEntries;
+        int evicted = 0;
+        if (excess > 0) {
+            List<String> oldest = repository.findOldestKeys(PageRequest.of(0, (int) Math.min(excess, Integer.MAX_VALUE)));
+            repository.deleteAllByIdInBatch(oldest);
+            evicted = oldest.size();
+        }
+        if (expired > 0 || evicted > 0) {
+            log.info("Caché de resúmenes depurada: {} expiradas, {} por límite de tamaño", expired, evicted);
+        }
+    }
+}
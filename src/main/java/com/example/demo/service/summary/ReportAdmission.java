@@ -0,0 +1,72 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Control de admisión de reportes: acota cuántos reportes aceptados (202) pueden estar sin terminar
+ * a la vez ({@code reports.admission.max-in-flight}). Con el pool de plataforma debe coincidir con
+ * hilos + cola para que el executor nunca descarte trabajo ya confirmado al cliente; con hilos
+ * virtuales no hay cola y es el único tope de reportes en memoria, mientras que la concurrencia
+ * hacia DB, LLM y SMTP la fija {@link ReportResourceLimiter}.
+ */
+@Component
+public class ReportAdmission {
+
+    private final int capacity;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public ReportAdmission(@Value("${reports.admission.max-in-flight:110}") int capacity,
+                           MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.rejected = Counter.builder("reports.admission.rejected")
+                .description("Solicitudes de reporte rechazadas por capacidad")
+                .register(meterRegistry);
+        Gauge.builder("reports.admission.in_flight", this, ReportAdmission::inFlight)
+                .description("Reportes aceptados aún no terminados")
+                .register(meterRegistry);
+    }
+
+    public void acquire() {
+        acquire(1);
+    }
+
+    /** Reserva varios permisos a la vez o ninguno, para solicitudes que generan varios reportes. */
+    public void acquire(int count) {
+        if (!permits.tryAcquire(count)) {
+            rejected.increment();
+            throw new BusinessException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Hay demasiados reportes en proceso. Intente nuevamente en unos minutos.");
+        }
+    }
+
+    /** Variante sin excepción para los jobs que retoma el poller. */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public void release(int count) {
+        permits.release(count);
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+
+    public int inFlight() {
+        return capacity - permits.availablePermits();
+    }
+}
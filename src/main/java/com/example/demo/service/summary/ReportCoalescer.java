@@ -0,0 +1,106 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.entity.Sale;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.service.mail.RenderedReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight de reportes: mientras un reporte idéntico está en curso, las demás solicitudes
+ * esperan su resultado en lugar de repetir agregación, llamada al LLM y render del PDF.
+ * Solo agrupa solicitudes simultáneas; al terminar, la entrada se descarta.
+ */
+@Component
+public class ReportCoalescer {
+
+    private final ConcurrentMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public ReportCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("reports.coalesced")
+                .description("Solicitudes de reporte servidas por otra idéntica en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devuelve el reporte generado por esta solicitud o por una idéntica en curso. Cada llamador
+     * recibe su propia referencia y debe liberarla con {@link RenderedReport#release()}.
+     */
+    public RenderedReport render(ReportRequestedEvent event, Supplier<RenderedReport> work) {
+        Key key = Key.of(event);
+        Flight mine = new Flight();
+        // compute serializa por clave las altas de seguidores y el cierre del vuelo
+        Flight running = inFlight.compute(key, (k, current) -> {
+            if (current == null) {
+                return mine;
+            }
+            current.followers++;
+            return current;
+        });
+        if (running != mine) {
+            coalesced.increment();
+            return await(running.result);
+        }
+        RenderedReport report;
+        try {
+            report = work.get();
+        } catch (RuntimeException ex) {
+            close(key, mine);
+            mine.result.completeExceptionally(ex);
+            throw ex;
+        }
+        // Cerrado el vuelo nadie más se suma, así que el conteo de seguidores ya es definitivo
+        int followers = close(key, mine);
+        if (report != null) {
+            report.retain(followers);
+        }
+        mine.result.complete(report);
+        return report;
+    }
+
+    private int close(Key key, Flight flight) {
+        int[] followers = new int[1];
+        inFlight.computeIfPresent(key, (k, current) -> {
+            if (current != flight) {
+                return current;
+            }
+            followers[0] = current.followers;
+            return null;
+        });
+        return followers[0];
+    }
+
+    private static RenderedReport await(CompletableFuture<RenderedReport> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<RenderedReport> result = new CompletableFuture<>();
+        private int followers;
+    }
+
+    private record Key(String branch, LocalDate from, LocalDate to,
+                       boolean premium, boolean includeCharts, boolean attachPdf) {
+
+        static Key of(ReportRequestedEvent event) {
+            return new Key(Sale.normalizeBranch(event.getBranch()), event.getFrom(), event.getTo(),
+                    event.isPremium(), event.isIncludeCharts(), event.isAttachPdf());
+        }
+    }
+}
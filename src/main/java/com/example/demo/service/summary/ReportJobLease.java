@@ -0,0 +1,24 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.entity.ReportJob;
+import com.example.demo.entity.ReportJobStatus;
+
+import java.util.Objects;
+
+/**
+ * Toma de un job por un worker: instancia ({@code lockedBy}) más número de intento. Si el job se
+ * reencola y se vuelve a tomar, la toma anterior deja de valer aunque sea de la misma instancia.
+ */
+public record ReportJobLease(String requestId, String owner, int attempt) {
+
+    public static ReportJobLease of(ReportJob job) {
+        return new ReportJobLease(job.getRequestId(), job.getLockedBy(), job.getAttempts());
+    }
+
+    /** true si el job sigue en curso bajo esta misma toma. */
+    public boolean holds(ReportJob job) {
+        return ReportJobStatus.RUNNING.contains(job.getStatus())
+                && Objects.equals(owner, job.getLockedBy())
+                && attempt == job.getAttempts();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.entity.ReportJob;
+import com.example.demo.event.ReportRequestedListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Retoma los jobs que quedaron en cola sin worker: los publicados antes de un reinicio, o los que
+ * otra instancia no alcanzó a procesar. Los jobs recién creados los procesa el listener del evento;
+ * el poller solo toma los que llevan más de {@code reports.jobs.pickup-delay} en cola.
+ */
+@Component
+@Slf4j
+public class ReportJobPoller {
+
+    private final ReportJobService jobService;
+    private final ReportRequestedListener listener;
+    private final ReportAdmission reportAdmission;
+    private final AsyncTaskExecutor reportExecutor;
+
+    @Value("${reports.jobs.pickup-delay:30s}")
+    private Duration pickupDelay;
+
+    @Value("${reports.jobs.batch-size:10}")
+    private int batchSize;
+
+    @Value("${reports.jobs.stale-after:10m}")
+    private Duration staleAfter;
+
+    @Value("${reports.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    public ReportJobPoller(ReportJobService jobService,
+                           ReportRequestedListener listener,
+                           ReportAdmission reportAdmission,
+                           @Qualifier("reportExecutor") AsyncTaskExecutor reportExecutor) {
+        this.jobService = jobService;
+        this.listener = listener;
+        this.reportAdmission = reportAdmission;
+        this.reportExecutor = reportExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${reports.jobs.poll-interval-ms:5000}")
+    public void poll() {
+        jobService.recoverStale(staleAfter, maxAttempts);
+
+        int free = Math.min(reportAdmission.available(), batchSize);
+        if (free <= 0) {
+            return;
+        }
+        List<ReportJob> jobs = jobService.claimQueued(pickupDelay, free);
+        for (ReportJob job : jobs) {
+            ReportJobLease lease = ReportJobLease.of(job);
+            if (!reportAdmission.tryAcquire()) {
+                jobService.release(lease);
+                continue;
+            }
+            try {
+                reportExecutor.execute(() -> listener.processClaimed(job.toEvent(), lease));
+            } catch (TaskRejectedException ex) {
+                reportAdmission.release();
+                jobService.release(lease);
+            }
+        }
+        if (!jobs.isEmpty()) {
+            log.info("Retomados {} jobs de reporte en cola", jobs.size());
+        }
+    }
+
+    // Una etapa larga (seguidor esperando a su líder, envío con reintentos) no debe parecer abandonada
+    @Scheduled(fixedDelayString = "${reports.jobs.heartbeat-interval-ms:60000}")
+    public void heartbeat() {
+        jobService.heartbeat();
+    }
+}
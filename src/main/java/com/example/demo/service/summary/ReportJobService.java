@@ -0,0 +1,221 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.dto.summary.ReportJobStatusResponse;
+import com.example.demo.entity.ReportJob;
+import com.example.demo.entity.ReportJobStatus;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.exception.BusinessException;
+import com.example.demo.repository.ReportJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ciclo de vida de los jobs de reporte en {@code report_jobs}. Cada transición es una
+ * transacción corta para que el avance sea visible mientras el reporte se genera.
+ * <p>
+ * Las transiciones de un job en curso exigen la {@link ReportJobLease} vigente: si el job se
+ * reencoló por inactivo y otro worker lo tomó, el worker anterior ya no puede moverlo ni cerrarlo.
+ * Mientras un job está tomado, {@link #heartbeat()} refresca {@code updatedAt} aunque la etapa dure.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ReportJobRepository jobRepository;
+
+    // Identifica a esta instancia en lockedBy
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Tomas en curso en esta instancia, para el heartbeat
+    private final Set<ReportJobLease> active = ConcurrentHashMap.newKeySet();
+
+    @Transactional
+    public void enqueue(ReportRequestedEvent event) {
+        jobRepository.save(ReportJob.queued(event));
+    }
+
+    /** Persiste los jobs de una misma solicitud en una sola transacción: quedan todos en cola o ninguno. */
+    @Transactional
+    public void enqueueAll(List<ReportRequestedEvent> events) {
+        jobRepository.saveAll(events.stream().map(ReportJob::queued).toList());
+    }
+
+    /** Toma el job si sigue en cola; vacío si otra instancia ya lo tomó. */
+    @Transactional
+    public Optional<ReportJobLease> claim(String requestId) {
+        if (jobRepository.claim(requestId, instanceId, LocalDateTime.now()) != 1) {
+            return Optional.empty();
+        }
+        return jobRepository.findById(requestId).map(job -> track(ReportJobLease.of(job)));
+    }
+
+    /** Toma hasta {@code limit} jobs que llevan en cola al menos {@code queuedFor}. */
+    @Transactional
+    public List<ReportJob> claimQueued(Duration queuedFor, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReportJob> jobs = jobRepository.lockQueued(now.minus(queuedFor), PageRequest.of(0, limit));
+        for (ReportJob job : jobs) {
+            job.setStatus(ReportJobStatus.AGGREGATING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLockedBy(instanceId);
+            job.setAggregatingAt(now);
+            job.setUpdatedAt(now);
+            track(ReportJobLease.of(job));
+        }
+        return jobs;
+    }
+
+    /** Mueve el job de etapa; {@code false} si la toma ya no es vigente (el worker debe abandonar el job). */
+    @Transactional
+    public boolean advance(ReportJobLease lease, ReportJobStatus stage) {
+        return transition(lease, stage, null);
+    }
+
+    @Transactional
+    public boolean complete(ReportJobLease lease) {
+        return transition(lease, ReportJobStatus.DONE, null);
+    }
+
+    @Transactional
+    public boolean fail(ReportJobLease lease, String reason) {
+        return transition(lease, ReportJobStatus.FAILED, reason);
+    }
+
+    /**
+     * Devuelve a la cola un job tomado que no llegó a ejecutarse (sin permiso de admisión o rechazado
+     * por el executor): descuenta el intento que sumó la toma para que no agote los reintentos sin correr.
+     */
+    @Transactional
+    public boolean release(ReportJobLease lease) {
+        active.remove(lease);
+        Optional<ReportJob> job = jobRepository.findForUpdate(lease.requestId()).filter(lease::holds);
+        job.ifPresent(j -> {
+            apply(j, ReportJobStatus.QUEUED, null);
+            j.setAttempts(j.getAttempts() - 1);
+        });
+        return job.isPresent();
+    }
+
+    /** Falla un job que nunca llegó a tomarse (p. ej. el executor rechazó la tarea). */
+    @Transactional
+    public void failQueued(String requestId, String reason) {
+        jobRepository.findForUpdate(requestId)
+                .filter(job -> job.getStatus() == ReportJobStatus.QUEUED)
+                .ifPresent(job -> apply(job, ReportJobStatus.FAILED, reason));
+    }
+
+    /** Deja de mantener viva la toma, si el worker termina sin cerrar el job. */
+    public void untrack(ReportJobLease lease) {
+        active.remove(lease);
+    }
+
+    /** Refresca {@code updatedAt} de los jobs tomados por esta instancia; descarta las tomas perdidas. */
+    @Transactional
+    public void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ReportJobLease lease : active) {
+            if (jobRepository.touch(lease.requestId(), lease.owner(), lease.attempt(), ReportJobStatus.RUNNING, now) == 0) {
+                active.remove(lease);
+                log.warn("El job {} (intento {}) ya no pertenece a este worker", lease.requestId(), lease.attempt());
+            }
+        }
+    }
+
+    private ReportJobLease track(ReportJobLease lease) {
+        active.add(lease);
+        return lease;
+    }
+
+    private boolean transition(ReportJobLease lease, ReportJobStatus stage, String reason) {
+        Optional<ReportJob> job = jobRepository.findForUpdate(lease.requestId()).filter(lease::holds);
+        if (job.isEmpty()) {
+            active.remove(lease);
+            log.warn("El job {} (intento {}) ya no pertenece a este worker; se descarta el paso a {}",
+                    lease.requestId(), lease.attempt(), stage);
+            return false;
+        }
+        apply(job.get(), stage, reason);
+        if (stage == ReportJobStatus.QUEUED || stage.isTerminal()) {
+            active.remove(lease);
+        }
+        return true;
+    }
+
+    private static void apply(ReportJob job, ReportJobStatus stage, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(stage);
+        job.setUpdatedAt(now);
+        switch (stage) {
+            case QUEUED -> job.setLockedBy(null);
+            case AGGREGATING -> job.setAggregatingAt(now);
+            case SUMMARIZING -> job.setSummarizingAt(now);
+            case RENDERING -> job.setRenderingAt(now);
+            case SENDING -> job.setSendingAt(now);
+            case DONE, FAILED -> job.setFinishedAt(now);
+        }
+        if (reason != null) {
+            job.setErrorMessage(truncate(reason));
+        }
+    }
+
+    /** Devuelve a la cola los jobs cuyo worker dejó de reportar avance (p. ej. la instancia se cayó). */
+    @Transactional
+    public void recoverStale(Duration staleAfter, int maxAttempts) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(staleAfter);
+        int failed = jobRepository.failStale(ReportJobStatus.RUNNING, staleBefore, maxAttempts, now);
+        int requeued = jobRepository.requeueStale(ReportJobStatus.RUNNING, staleBefore, maxAttempts, now);
+        if (failed > 0 || requeued > 0) {
+            log.warn("Jobs de reporte abandonados: {} reencolados, {} marcados como fallidos", requeued, failed);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ReportJobStatusResponse status(String requestId, User requester) {
+        ReportJob job = jobRepository.findById(requestId)
+                .orElseThrow(() -> new BusinessException(HttpStatus.NOT_FOUND, "Solicitud de reporte no encontrada"));
+        if (requester.getRole() == Role.BRANCH && !requester.getBranch().equalsIgnoreCase(job.getBranch())) {
+            throw new BusinessException(HttpStatus.FORBIDDEN, "No tiene permisos sobre esta solicitud");
+        }
+        return ReportJobStatusResponse.builder()
+                .requestId(job.getRequestId())
+                .status(job.getStatus())
+                .branch(job.getBranch())
+                .from(job.getFrom())
+                .to(job.getTo())
+                .premium(job.isPremium())
+                .attempts(job.getAttempts())
+                .error(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .aggregatingAt(job.getAggregatingAt())
+                .summarizingAt(job.getSummarizingAt())
+                .renderingAt(job.getRenderingAt())
+                .sendingAt(job.getSendingAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null) {
+            return null;
+        }
+        return reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason;
+    }
+}
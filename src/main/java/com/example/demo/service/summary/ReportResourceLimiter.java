@@ -0,0 +1,64 @@
+package com.example.demo.service.summary;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Límite de concurrencia por recurso externo del pipeline de reportes. Con hilos virtuales el
+ * número de hilos deja de ser el límite, así que cada etapa espera un permiso de su recurso.
+ */
+@Component
+public class ReportResourceLimiter {
+
+    public enum Resource { DB, LLM, SMTP }
+
+    private final Map<Resource, Semaphore> permits = new EnumMap<>(Resource.class);
+    private final Map<Resource, Timer> waits = new EnumMap<>(Resource.class);
+
+    public ReportResourceLimiter(@Value("${reports.limits.db:8}") int db,
+                                 @Value("${reports.limits.llm:16}") int llm,
+                                 @Value("${reports.limits.smtp:4}") int smtp,
+                                 MeterRegistry meterRegistry) {
+        permits.put(Resource.DB, new Semaphore(db, true));
+        permits.put(Resource.LLM, new Semaphore(llm, true));
+        permits.put(Resource.SMTP, new Semaphore(smtp, true));
+        for (Resource resource : Resource.values()) {
+            waits.put(resource, Timer.builder("reports.resource.wait")
+                    .description("Espera por un permiso del recurso")
+                    .tag("resource", resource.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    public <T> T call(Resource resource, Supplier<T> work) {
+        Semaphore semaphore = permits.get(resource);
+        long start = System.nanoTime();
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el recurso " + resource, ex);
+        }
+        waits.get(resource).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        try {
+            return work.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public void run(Resource resource, Runnable work) {
+        call(resource, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
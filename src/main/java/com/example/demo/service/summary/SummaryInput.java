@@ -0,0 +1,11 @@
+package com.example.demo.service.summary;
+
+import com.example.demo.dto.sales.SalesAggregates;
+
+import java.time.LocalDate;
+
+/**
+ * Datos de un resumen a pedir al LLM: los agregados de una sucursal en un periodo.
+ */
+public record SummaryInput(SalesAggregates aggregates, String branch, LocalDate from, LocalDate to) {
+}
@@ -1,54 +1,107 @@
 package com.example.demo.service.summary;
 
+import com.example.demo.dto.summary.ReportJobStatusResponse;
 import com.example.demo.dto.summary.SalesSummaryPremiumRequest;
 import com.example.demo.dto.summary.SalesSummaryResponse;
+import com.example.demo.dto.summary.WeeklyBatchSummaryRequest;
 import com.example.demo.dto.summary.WeeklySummaryRequest;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.event.ReportRequestedEvent;
 import com.example.demo.exception.BusinessException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class SummaryService {
 
     private final ApplicationEventPublisher publisher;
+    private final ReportAdmission reportAdmission;
+    private final ReportJobService jobService;
 
     public SalesSummaryResponse requestWeeklySummary(WeeklySummaryRequest request, User requester) {
         validateBranchAccess(request.getBranch(), requester);
         LocalDate from = request.getFrom() != null ? request.getFrom() : LocalDate.now().minusDays(6);
         LocalDate to = request.getTo() != null ? request.getTo() : LocalDate.now();
-        String requestId = "req_" + UUID.randomUUID();
 
-        ReportRequestedEvent event = ReportRequestedEvent.builder()
-                .requestId(requestId)
+        ReportRequestedEvent event = weeklyEvent(request.getBranch(), from, to, request.getEmailTo(), requester);
+        dispatch(event);
+        return weeklyResponse(event);
+    }
+
+    /**
+     * Un reporte semanal por sucursal. Se admiten y se persisten todos o ninguno; al procesarse a la
+     * vez, sus resúmenes se piden al LLM en lote. Si el executor rechaza parte del lote, esos jobs ya
+     * están en cola y los retoma {@link ReportJobPoller}, así que la respuesta vale para todas las sucursales.
+     */
+    public List<SalesSummaryResponse> requestWeeklyBatch(WeeklyBatchSummaryRequest request, User requester) {
+        if (requester.getRole() != Role.CENTRAL) {
+            throw new BusinessException(HttpStatus.FORBIDDEN, "Solo central puede solicitar reportes de varias sucursales");
+        }
+        LocalDate from = request.getFrom() != null ? request.getFrom() : LocalDate.now().minusDays(6);
+        LocalDate to = request.getTo() != null ? request.getTo() : LocalDate.now();
+        Map<String, String> branches = new LinkedHashMap<>();
+        request.getBranches().forEach(branch -> branches.putIfAbsent(branch.trim().toLowerCase(), branch.trim()));
+
+        List<ReportRequestedEvent> events = branches.values().stream()
+                .map(branch -> weeklyEvent(branch, from, to, request.getEmailTo(), requester))
+                .toList();
+        reportAdmission.acquire(events.size());
+        try {
+            jobService.enqueueAll(events);
+        } catch (RuntimeException ex) {
+            reportAdmission.release(events.size());
+            throw ex;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                publisher.publishEvent(events.get(i));
+            } catch (RuntimeException ex) {
+                // El poller toma sus propios permisos al retomarlos; se liberan los de los que no salieron
+                int pending = events.size() - i;
+                reportAdmission.release(pending);
+                log.warn("{} reportes del lote quedan en cola para el poller: {}", pending, ex.getMessage());
+                break;
+            }
+        }
+        return events.stream().map(this::weeklyResponse).toList();
+    }
+
+    private ReportRequestedEvent weeklyEvent(String branch, LocalDate from, LocalDate to, String emailTo, User requester) {
+        return ReportRequestedEvent.builder()
+                .requestId("req_" + UUID.randomUUID())
                 .requesterUsername(requester.getUsername())
                 .requesterEmail(requester.getEmail())
                 .requesterRole(requester.getRole())
-                .branch(request.getBranch())
+                .branch(branch)
                 .from(from)
                 .to(to)
-                .emailTo(request.getEmailTo())
+                .emailTo(emailTo)
                 .premium(false)
                 .includeCharts(false)
                 .attachPdf(false)
                 .build();
-        publisher.publishEvent(event);
+    }
 
+    private SalesSummaryResponse weeklyResponse(ReportRequestedEvent event) {
         return SalesSummaryResponse.builder()
-                .requestId(requestId)
+                .requestId(event.getRequestId())
                 .status("PROCESSING")
-                .message("Su solicitud de reporte está siendo procesada. Recibirá el resumen en " + request.getEmailTo() + " en unos momentos.")
+                .message("Su solicitud de reporte está siendo procesada. Recibirá el resumen en " + event.getEmailTo() + " en unos momentos.")
                 .estimatedTime("30-60 segundos")
                 .requestedAt(LocalDateTime.now())
                 .build();
@@ -76,7 +129,7 @@ public class SummaryService {
                 .includeCharts(request.isIncludeCharts())
                 .attachPdf(request.isAttachPdf())
                 .build();
-        publisher.publishEvent(event);
+        dispatch(event);
 
         List<String> features = List.of("HTML_FORMAT");
         if (request.isIncludeCharts() || request.isAttachPdf()) {
@@ -99,6 +152,31 @@ public class SummaryService {
                 .build();
     }
 
+    public ReportJobStatusResponse getStatus(String requestId, User requester) {
+        return jobService.status(requestId, requester);
+    }
+
+    // El job queda persistido antes de publicar: si la instancia se reinicia, ReportJobPoller lo retoma.
+    // El permiso se libera en ReportRequestedListener al terminar, o aquí si el pool no aceptó la tarea
+    private void dispatch(ReportRequestedEvent event) {
+        reportAdmission.acquire();
+        publish(event);
+    }
+
+    private void publish(ReportRequestedEvent event) {
+        try {
+            jobService.enqueue(event);
+            publisher.publishEvent(event);
+        } catch (TaskRejectedException ex) {
+            reportAdmission.release();
+            jobService.failQueued(event.getRequestId(), "Rechazado por el executor de reportes");
+            throw new BusinessException(HttpStatus.SERVICE_UNAVAILABLE, "El servicio de reportes no está disponible en este momento");
+        } catch (RuntimeException ex) {
+            reportAdmission.release();
+            throw ex;
+        }
+    }
+
     private void validateBranchAccess(String branch, User requester) {
         if (requester.getRole() == Role.BRANCH && !requester.getBranch().equalsIgnoreCase(branch)) {
             throw new BusinessException(HttpStatus.FORBIDDEN, "Solo puede solicitar reportes de su sucursal");
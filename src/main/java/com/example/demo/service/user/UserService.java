@@ -4,6 +4,8 @@ import com.example.demo.dto.user.UserResponse;
 import com.example.demo.entity.User;
 import com.example.demo.exception.BusinessException;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.PrincipalCache;
+import com.example.demo.security.UserRevocationRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,8 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final UserRevocationRegistry revocationRegistry;
 
     public List<UserResponse> listUsers() {
         return userRepository.findAll().stream()
@@ -39,6 +43,8 @@ public class UserService {
             throw new BusinessException(HttpStatus.NOT_FOUND, "Usuario no encontrado");
         }
         userRepository.deleteById(id);
+        principalCache.evictUser(id);
+        revocationRegistry.revoke(id);
     }
 
     private UserResponse toResponse(User user) {
@@ -0,0 +1,55 @@
+package com.example.demo.util;
+
+import com.example.demo.entity.Sale;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición opaca para la paginación por cursor: codifica la clave (soldAt, id) de la última venta devuelta.
+ */
+@Getter
+public class SaleCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime soldAt;
+    private final String id;
+
+    private SaleCursor(LocalDateTime soldAt, String id) {
+        this.soldAt = soldAt;
+        this.id = id;
+    }
+
+    public static SaleCursor of(Sale sale) {
+        return new SaleCursor(sale.getSoldAt(), sale.getId());
+    }
+
+    /**
+     * Cursor anterior a cualquier venta del rango: como se recorre en orden descendente,
+     * basta con ubicarlo justo después del límite superior.
+     */
+    public static SaleCursor start(DateRange range) {
+        return new SaleCursor(range.getTo().plusSeconds(1), "");
+    }
+
+    public static SaleCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.indexOf(SEPARATOR);
+            if (idx <= 0 || idx == raw.length() - 1) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new SaleCursor(LocalDateTime.parse(raw.substring(0, idx)), raw.substring(idx + 1));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    public String encode() {
+        String raw = soldAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.service.mail.ChartRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del gráfico del reporte premium: dibujo + PNG sin caché, acierto de caché y el
+ * {@code data:} URI que se embebe en el PDF.
+ * Ejecutar con {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * "-Dexec.args=-cp %classpath com.example.demo.benchmark.ChartRendererBenchmark"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartRendererBenchmark {
+
+    private ChartRenderer renderer;
+    private SalesAggregates cached;
+    private byte[] png;
+    private int units;
+
+    @Setup
+    public void setUp() {
+        renderer = new ChartRenderer(500, new SimpleMeterRegistry());
+        cached = SalesAggregates.builder().totalUnits(1250).totalRevenue(3187.5).build();
+        png = renderer.render(cached);
+    }
+
+    @Benchmark
+    public byte[] renderUncached() {
+        // Valores siempre distintos: cada llamada dibuja y codifica el PNG
+        return renderer.render(SalesAggregates.builder().totalUnits(++units).totalRevenue(3187.5).build());
+    }
+
+    @Benchmark
+    public byte[] renderCached() {
+        return renderer.render(cached);
+    }
+
+    @Benchmark
+    public String dataUri() {
+        return ChartRenderer.toDataUri(png);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChartRendererBenchmark.class.getSimpleName()).build()).run();
+    }
+}
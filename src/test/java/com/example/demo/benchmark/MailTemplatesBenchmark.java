@@ -0,0 +1,171 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.service.mail.ChartRenderer;
+import com.example.demo.service.mail.MailTemplates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plantillas compiladas contra la concatenación que armaba cada correo desde cero (copiada
+ * abajo tal como estaba en MailService). Con el perfilador de GC, {@code gc.alloc.rate.norm}
+ * da los bytes asignados por reporte.
+ * Ejecutar con {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * "-Dexec.args=-cp %classpath com.example.demo.benchmark.MailTemplatesBenchmark"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailTemplatesBenchmark {
+
+    private static final String CHART_SRC = "cid:grafico-resumen";
+
+    private MailTemplates templates;
+    private ReportRequestedEvent event;
+    private SalesAggregates aggregates;
+    private String summary;
+    private String chartDataUri;
+
+    @Setup
+    public void setUp() {
+        templates = new MailTemplates();
+        event = ReportRequestedEvent.builder()
+                .requestId("req_1").branch("Miraflores")
+                .from(LocalDate.of(2025, 9, 1)).to(LocalDate.of(2025, 9, 7))
+                .emailTo("gerente@oreo.com").premium(true).includeCharts(true)
+                .build();
+        aggregates = SalesAggregates.builder().totalUnits(1250).totalRevenue(3187.5)
+                .topSku("OREO-CLASSIC").topBranch("San Isidro").build();
+        summary = "Semana sólida en Miraflores: 1250 unidades y S/ 3187.50 en ingresos.\n" +
+                "OREO-CLASSIC lideró las ventas; San Isidro fue la sucursal con mejor desempeño.\n" +
+                "Recomendación: reforzar stock para el fin de semana.";
+        chartDataUri = ChartRenderer.toDataUri(new ChartRenderer(1, new SimpleMeterRegistry()).render(aggregates));
+    }
+
+    @Benchmark
+    public String premiumTemplate() {
+        return templates.premiumHtml(event, aggregates, summary, CHART_SRC);
+    }
+
+    @Benchmark
+    public String premiumLegacy() {
+        return legacyPremiumHtml(event, aggregates, summary, CHART_SRC);
+    }
+
+    /** Variante que va al PDF: el gráfico embebido como data URI domina el tamaño. */
+    @Benchmark
+    public String premiumPdfTemplate() {
+        return templates.premiumHtml(event, aggregates, summary, chartDataUri);
+    }
+
+    @Benchmark
+    public String premiumPdfLegacy() {
+        return legacyPremiumHtml(event, aggregates, summary, chartDataUri);
+    }
+
+    @Benchmark
+    public String failureTemplate() {
+        return templates.failureBody(event, "Error al enviar el email");
+    }
+
+    @Benchmark
+    public String failureLegacy() {
+        return legacyFailureBody(event, "Error al enviar el email");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MailTemplatesBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    // Builders anteriores, sin cambios salvo el nombre
+
+    static String legacyFailureBody(ReportRequestedEvent event, String reason) {
+        return "No fue posible generar el resumen solicitado.\n\n" +
+                "Detalles:\n" +
+                "• ID de solicitud: " + event.getRequestId() + "\n" +
+                "• Periodo: " + event.getFrom() + " a " + event.getTo() + "\n" +
+                "• Sucursal: " + event.getBranch() + "\n" +
+                "• Motivo del error: " + reason + "\n\n" +
+                "Por favor, contacte al administrador del sistema.\n\n" +
+                "--\nSistema de Reportes Oreo Insight Factory";
+    }
+
+    static String legacyPremiumHtml(ReportRequestedEvent event, SalesAggregates aggregates, String summaryText,
+                                    String chartSrc) {
+        return "<!DOCTYPE html>" +
+                "<html lang='es'>" +
+                "<head>" +
+                "<meta charset='UTF-8'>" +
+                "<meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
+                "<title>Reporte Oreo</title>" +
+                "<style>" +
+                "body { font-family: 'Segoe UI', Arial, sans-serif; margin: 0; padding: 20px; background: #f8fafc; color: #1e293b; }" +
+                ".container { max-width: 800px; margin: 0 auto; background: white; border-radius: 12px; box-shadow: 0 4px 6px -1px rgba(0,0,0,0.1); overflow: hidden; }" +
+                ".header { background: linear-gradient(135deg, #6B46C1, #805AD5); color: white; padding: 30px; text-align: center; }" +
+                ".header h1 { margin: 0; font-size: 28px; }" +
+                ".header p { margin: 8px 0 0; opacity: 0.9; }" +
+                ".content { padding: 30px; }" +
+                ".summary { background: #f1f5f9; padding: 20px; border-radius: 8px; margin-bottom: 25px; line-height: 1.6; }" +
+                ".metrics { display: grid; grid-template-columns: repeat(auto-fit, minmax(150px, 1fr)); gap: 15px; margin: 25px 0; }" +
+                ".metric { background: #f8fafc; padding: 20px; border-radius: 8px; border-left: 4px solid #6B46C1; text-align: center; }" +
+                ".metric h3 { margin: 0 0 8px; font-size: 14px; color: #64748b; text-transform: uppercase; letter-spacing: 0.5px; }" +
+                ".metric p { margin: 0; font-size: 24px; font-weight: bold; color: #1e293b; }" +
+                ".chart-container { margin: 30px 0; text-align: center; }" +
+                ".footer { background: #f1f5f9; padding: 20px; text-align: center; color: #64748b; font-size: 14px; }" +
+                ".premium-badge { background: #fbbf24; color: #78350f; padding: 4px 12px; border-radius: 20px; font-size: 12px; font-weight: bold; display: inline-block; margin-left: 10px; }" +
+                "</style>" +
+                "</head>" +
+                "<body>" +
+                "<div class='container'>" +
+                "<div class='header'>" +
+                "<h1>🍪 Reporte Semanal Oreo " + (event.isPremium() ? "<span class='premium-badge'>PREMIUM</span>" : "") + "</h1>" +
+                "<p>" + event.getFrom() + " a " + event.getTo() + " | " + event.getBranch() + "</p>" +
+                "</div>" +
+                "<div class='content'>" +
+                "<div class='summary'>" +
+                "<p>" + summaryText.replace("\n", "<br>") + "</p>" +
+                "</div>" +
+                "<div class='metrics'>" +
+                "<div class='metric'><h3>Total Unidades</h3><p>" + aggregates.getTotalUnits() + "</p></div>" +
+                "<div class='metric'><h3>Total Ingresos</h3><p>S/ " + String.format("%.2f", aggregates.getTotalRevenue()) + "</p></div>" +
+                (aggregates.getTopSku() != null ? "<div class='metric'><h3>SKU Top</h3><p>" + aggregates.getTopSku() + "</p></div>" : "") +
+                (aggregates.getTopBranch() != null && !aggregates.getTopBranch().equals(event.getBranch()) ?
+                        "<div class='metric'><h3>Sucursal Top</h3><p>" + aggregates.getTopBranch() + "</p></div>" : "") +
+                "</div>" +
+                (event.isIncludeCharts() && chartSrc != null ?
+                        "<div class='chart-container'>" +
+                                "<img src='" + chartSrc + "' alt='Gráfico de Resumen' style='max-width: 100%; height: auto; border-radius: 8px;'/>" +
+                                "<p style='color: #64748b; font-size: 12px; margin-top: 8px;'>Gráfico generado automáticamente</p>" +
+                                "</div>" : "") +
+                "</div>" +
+                "<div class='footer'>" +
+                "<p>🚀 Generado automáticamente por Oreo Insight Factory</p>" +
+                "</div>" +
+                "</div>" +
+                "</body>" +
+                "</html>";
+    }
+}
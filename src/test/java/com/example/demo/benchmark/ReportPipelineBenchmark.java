@@ -0,0 +1,148 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.event.ReportRequestedListener;
+import com.example.demo.service.mail.MailService;
+import com.example.demo.service.sales.SalesAggregationService;
+import com.example.demo.service.summary.LlmSummaryBatcher;
+import com.example.demo.service.summary.ReportAdmission;
+import com.example.demo.service.summary.ReportCoalescer;
+import com.example.demo.service.summary.ReportJobLease;
+import com.example.demo.service.summary.ReportJobService;
+import com.example.demo.service.summary.ReportResourceLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Throughput del pipeline de reportes con latencias simuladas de DB, LLM y SMTP: pool de 10 hilos
+ * de plataforma contra hilos virtuales limitados por semáforos de recurso. Cada operación procesa
+ * un lote de 120 reportes; reportes/s = 120 / tiempo por operación.
+ * Ejecutar con {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * "-Dexec.args=-cp %classpath com.example.demo.benchmark.ReportPipelineBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportPipelineBenchmark {
+
+    private static final int REPORTS = 120;
+    private static final long DB_MILLIS = 10;
+    private static final long LLM_MILLIS = 150;
+    private static final long SMTP_MILLIS = 30;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private AsyncTaskExecutor executor;
+    private ReportAdmission admission;
+    private ReportRequestedListener listener;
+    private final AtomicLong batch = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        admission = new ReportAdmission(REPORTS, registry);
+
+        SalesAggregationService aggregationService = mock(SalesAggregationService.class, withSettings().stubOnly());
+        when(aggregationService.calculateAggregates(any(), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(DB_MILLIS);
+            return SalesAggregates.builder().totalUnits(10).build();
+        });
+        LlmSummaryBatcher summaryBatcher = mock(LlmSummaryBatcher.class, withSettings().stubOnly());
+        when(summaryBatcher.generateSummary(any(), any(), any(), any(), anyBoolean())).thenAnswer(inv -> {
+            Thread.sleep(LLM_MILLIS);
+            return "resumen";
+        });
+        MailService mailService = mock(MailService.class, withSettings().stubOnly());
+        doAnswer(inv -> {
+            Thread.sleep(SMTP_MILLIS);
+            return null;
+        }).when(mailService).send(any(), anyString());
+        ReportJobService jobService = mock(ReportJobService.class, withSettings().stubOnly());
+        when(jobService.claim(anyString()))
+                .thenAnswer(inv -> Optional.of(new ReportJobLease(inv.getArgument(0), "worker", 1)));
+        when(jobService.advance(any(), any())).thenReturn(true);
+        when(jobService.complete(any())).thenReturn(true);
+
+        listener = new ReportRequestedListener(aggregationService, summaryBatcher, mailService, admission,
+                new ReportResourceLimiter(8, 64, 16, registry), jobService, new ReportCoalescer(registry));
+
+        if ("virtual".equals(threads)) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("report-");
+            virtual.setVirtualThreads(true);
+            executor = virtual;
+        } else {
+            ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+            platform.setCorePoolSize(10);
+            platform.setMaxPoolSize(10);
+            platform.setQueueCapacity(REPORTS);
+            platform.initialize();
+            executor = platform;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor instanceof ThreadPoolTaskExecutor platform) {
+            platform.shutdown();
+        } else if (executor instanceof SimpleAsyncTaskExecutor virtual) {
+            virtual.close();
+        }
+    }
+
+    @Benchmark
+    public void reportBatch() throws InterruptedException {
+        // Sucursal distinta por lote y reporte: el coalescer no agrupa nada
+        long id = batch.incrementAndGet();
+        CountDownLatch done = new CountDownLatch(REPORTS);
+        for (int i = 0; i < REPORTS; i++) {
+            ReportRequestedEvent event = ReportRequestedEvent.builder()
+                    .requestId("req_" + id + "_" + i).branch("Sucursal " + id + "_" + i)
+                    .from(LocalDate.now().minusDays(6)).to(LocalDate.now())
+                    .emailTo("gerente@oreo.com").build();
+            admission.acquire();
+            executor.execute(() -> {
+                listener.handleReportRequest(event);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReportPipelineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
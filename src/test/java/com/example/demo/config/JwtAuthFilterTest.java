@@ -0,0 +1,176 @@
+package com.example.demo.config;
+
+import com.example.demo.entity.User;
+import com.example.demo.dto.user.UserTokenVersion;
+import com.example.demo.entity.Role;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.JwtPrincipalResolver;
+import com.example.demo.security.PrincipalCache;
+import com.example.demo.security.UserDetailsServiceImpl;
+import com.example.demo.security.UserRevocationRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthFilterTest {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdA==";
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private JwtUtils jwtUtils;
+    private PrincipalCache principalCache;
+    private UserRevocationRegistry revocationRegistry;
+    private JwtPrincipalResolver principalResolver;
+    private JwtAuthFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSigningKey", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "expiresMillis", 60_000L);
+        principalCache = new PrincipalCache(userDetailsService, 100, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        revocationRegistry = new UserRevocationRegistry(userRepository);
+        ReflectionTestUtils.setField(revocationRegistry, "principalMode", "claims");
+        principalResolver = new JwtPrincipalResolver(principalCache, revocationRegistry);
+        ReflectionTestUtils.setField(principalResolver, "principalMode", "database");
+        filter = new JwtAuthFilter(jwtUtils, principalResolver);
+
+        user = new User();
+        user.setId(7L);
+        user.setUsername("mira.user");
+        user.setRole(Role.BRANCH);
+        user.setBranch("Miraflores");
+        user.setEmail("mira@oreo.com");
+        user.setTokenVersion(3L);
+    }
+
+    private String loginToken(User u) {
+        return jwtUtils.generateToken(u, Map.of("role", u.getRole().name(), "branch", u.getBranch(),
+                "uid", u.getId(), "email", u.getEmail(), "ver", u.getTokenVersion()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(chain.getRequest()).isNotNull();
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    @DisplayName("Token válido autentica y el principal se resuelve una sola vez mientras esté en caché")
+    void validTokenUsesPrincipalCache() throws Exception {
+        when(userDetailsService.loadUserByUsername("mira.user")).thenReturn(user);
+        String token = jwtUtils.generateToken(user, Map.of("role", "BRANCH"));
+
+        assertThat(authenticate(token).getPrincipal()).isSameAs(user);
+        assertThat(authenticate(token).getPrincipal()).isSameAs(user);
+        verify(userDetailsService, times(1)).loadUserByUsername("mira.user");
+
+        principalCache.evictUser(7L);
+        authenticate(token);
+        verify(userDetailsService, times(2)).loadUserByUsername("mira.user");
+    }
+
+    @Test
+    @DisplayName("Token con firma inválida continúa la cadena sin autenticar ni consultar usuarios")
+    void tamperedTokenIsAnonymous() throws Exception {
+        String token = jwtUtils.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(authenticate(tampered)).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Usuario inexistente no autentica")
+    void missingUserIsAnonymous() throws Exception {
+        when(userDetailsService.loadUserByUsername("mira.user")).thenThrow(new UsernameNotFoundException("x"));
+
+        assertThat(authenticate(jwtUtils.generateToken(user))).isNull();
+    }
+
+    @Test
+    @DisplayName("Modo claims: el principal sale del token sin consultar usuarios en cada request")
+    void claimsModeBuildsPrincipalFromToken() throws Exception {
+        ReflectionTestUtils.setField(principalResolver, "principalMode", "claims");
+        when(userRepository.findActiveTokenVersions()).thenReturn(List.of(new UserTokenVersion(7L, 3L)));
+        revocationRegistry.refresh();
+
+        Authentication auth = authenticate(loginToken(user));
+        authenticate(loginToken(user));
+
+        User principal = (User) auth.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("mira.user");
+        assertThat(principal.getRole()).isEqualTo(Role.BRANCH);
+        assertThat(principal.getBranch()).isEqualTo("Miraflores");
+        assertThat(auth.getAuthorities()).extracting(Object::toString).containsExactly("BRANCH");
+        verifyNoInteractions(userDetailsService);
+        verify(userRepository, never()).findActiveTokenVersion(any());
+    }
+
+    @Test
+    @DisplayName("Modo claims: usuario eliminado o con versión de token distinta queda rechazado")
+    void claimsModeRejectsRevokedTokens() throws Exception {
+        ReflectionTestUtils.setField(principalResolver, "principalMode", "claims");
+        when(userRepository.findActiveTokenVersions()).thenReturn(List.of(new UserTokenVersion(7L, 4L)));
+        revocationRegistry.refresh();
+
+        // Versión 3 en el token, 4 vigente
+        assertThat(authenticate(loginToken(user))).isNull();
+
+        user.setTokenVersion(4L);
+        String current = loginToken(user);
+        assertThat(authenticate(current)).isNotNull();
+
+        revocationRegistry.revoke(7L);
+        assertThat(authenticate(current)).isNull();
+    }
+
+    @Test
+    @DisplayName("Modo claims: un usuario creado después de la recarga se consulta una sola vez")
+    void claimsModeLooksUpUnknownUserOnce() throws Exception {
+        ReflectionTestUtils.setField(principalResolver, "principalMode", "claims");
+        when(userRepository.findActiveTokenVersion(7L)).thenReturn(Optional.of(new UserTokenVersion(7L, 3L)));
+
+        assertThat(authenticate(loginToken(user))).isNotNull();
+        assertThat(authenticate(loginToken(user))).isNotNull();
+        verify(userRepository, times(1)).findActiveTokenVersion(7L);
+    }
+}
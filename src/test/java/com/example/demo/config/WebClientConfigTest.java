@@ -0,0 +1,129 @@
+package com.example.demo.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquirePendingLimitException;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebClientConfigTest {
+
+    private final WebClientConfig config = new WebClientConfig();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Set<String> acceptEncodings = ConcurrentHashMap.newKeySet();
+    private volatile long delayMs;
+    private HttpServer server;
+    private ConnectionProvider provider;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (provider != null) {
+            provider.dispose();
+        }
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (encoding != null) {
+            acceptEncodings.add(encoding);
+        }
+        exchange.getRequestBody().readAllBytes();
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private WebClient client(int maxConnections, int pendingAcquireMaxCount) {
+        provider = config.githubModelsConnectionProvider(maxConnections, pendingAcquireMaxCount,
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(30));
+        return config.githubModelsWebClient(provider, "http://127.0.0.1:" + server.getAddress().getPort(),
+                "token", Duration.ofSeconds(2), Duration.ofSeconds(5), true);
+    }
+
+    private static Mono<String> call(WebClient client) {
+        return client.post().bodyValue("{}").retrieve().bodyToMono(String.class);
+    }
+
+    @Test
+    @DisplayName("Las llamadas consecutivas reutilizan la misma conexión y piden compresión")
+    void reusesPooledConnection() {
+        WebClient client = client(4, 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(call(client).block()).contains("ok");
+        }
+
+        // La conexión vuelve al pool de forma asíncrona, así que alguna llamada puede abrir otra
+        assertThat(clientPorts.size()).isLessThan(5);
+        assertThat(acceptEncodings).allMatch(value -> value.contains("gzip"));
+    }
+
+    @Test
+    @DisplayName("El pool publica métricas de conexiones con el nombre github-models")
+    void exposesPoolMetrics() {
+        call(client(4, 10)).block();
+
+        assertThat(Metrics.globalRegistry.find("reactor.netty.connection.provider.total.connections")
+                .tag("name", "github-models").gauges()).isNotEmpty();
+        assertThat(Metrics.globalRegistry.find("reactor.netty.connection.provider.pending.connections")
+                .tag("name", "github-models").gauges()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Las esperas por conexión por encima del límite fallan de inmediato")
+    void limitsPendingAcquires() {
+        delayMs = 500;
+        WebClient client = client(1, 1);
+
+        List<Object> results = Flux.range(0, 3)
+                .flatMap(i -> call(client).<Object>map(body -> body).onErrorResume(Mono::just))
+                .collectList()
+                .block();
+
+        assertThat(results).hasSize(3);
+        assertThat(results).anyMatch(result -> result instanceof Throwable error
+                && error.getCause() instanceof PoolAcquirePendingLimitException);
+        assertThat(results).anyMatch(String.class::isInstance);
+    }
+}
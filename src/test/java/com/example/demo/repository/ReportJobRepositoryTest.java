@@ -0,0 +1,142 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ReportJob;
+import com.example.demo.entity.ReportJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportJobRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>("postgres:16.4-alpine")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        r.add("spring.datasource.username", POSTGRES::getUsername);
+        r.add("spring.datasource.password", POSTGRES::getPassword);
+        r.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        r.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        r.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Autowired
+    private ReportJobRepository jobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jobRepository.deleteAll();
+    }
+
+    private ReportJob job(String id, LocalDateTime createdAt) {
+        return ReportJob.builder()
+                .requestId(id)
+                .status(ReportJobStatus.QUEUED)
+                .branch("Miraflores")
+                .from(LocalDate.of(2025, 9, 1))
+                .to(LocalDate.of(2025, 9, 7))
+                .emailTo("gerente@oreo.com")
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    @Test
+    @DisplayName("SKIP LOCKED: dos workers concurrentes toman jobs distintos sin bloquearse")
+    void concurrentWorkersClaimDistinctJobs() throws Exception {
+        LocalDateTime base = LocalDateTime.now().minusMinutes(5);
+        jobRepository.saveAll(List.of(job("job-1", base), job("job-2", base.plusSeconds(1))));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> tx.execute(status -> {
+            List<String> ids = jobRepository.lockQueued(LocalDateTime.now(), PageRequest.of(0, 1))
+                    .stream().map(ReportJob::getRequestId).toList();
+            firstLocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ids;
+        }));
+
+        assertThat(firstLocked.await(10, TimeUnit.SECONDS)).isTrue();
+        List<String> second = tx.execute(status -> jobRepository.lockQueued(LocalDateTime.now(), PageRequest.of(0, 1))
+                .stream().map(ReportJob::getRequestId).toList());
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).containsExactly("job-1");
+        assertThat(second).containsExactly("job-2");
+    }
+
+    @Test
+    @DisplayName("claim solo tiene éxito una vez por job")
+    void claimIsAtomic() {
+        jobRepository.save(job("job-1", LocalDateTime.now()));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Integer firstClaim = tx.execute(s -> jobRepository.claim("job-1", "worker-a", LocalDateTime.now()));
+        Integer secondClaim = tx.execute(s -> jobRepository.claim("job-1", "worker-b", LocalDateTime.now()));
+
+        assertThat(firstClaim).isEqualTo(1);
+        assertThat(secondClaim).isZero();
+        ReportJob stored = jobRepository.findById("job-1").orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(ReportJobStatus.AGGREGATING);
+        assertThat(stored.getLockedBy()).isEqualTo("worker-a");
+        assertThat(stored.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("El heartbeat solo refresca el job si sigue tomado por la misma instancia e intento")
+    void touchRequiresCurrentLease() {
+        jobRepository.save(job("job-1", LocalDateTime.now().minusMinutes(30)));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.execute(s -> jobRepository.claim("job-1", "worker-a", LocalDateTime.now().minusMinutes(20)));
+        LocalDateTime now = LocalDateTime.now();
+
+        Integer otherWorker = tx.execute(s -> jobRepository.touch("job-1", "worker-b", 1, ReportJobStatus.RUNNING, now));
+        Integer oldAttempt = tx.execute(s -> jobRepository.touch("job-1", "worker-a", 0, ReportJobStatus.RUNNING, now));
+        Integer current = tx.execute(s -> jobRepository.touch("job-1", "worker-a", 1, ReportJobStatus.RUNNING, now));
+
+        assertThat(otherWorker).isZero();
+        assertThat(oldAttempt).isZero();
+        assertThat(current).isEqualTo(1);
+        assertThat(jobRepository.findById("job-1").orElseThrow().getUpdatedAt()).isAfter(now.minusSeconds(1));
+    }
+}
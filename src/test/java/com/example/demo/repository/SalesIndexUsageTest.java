@@ -0,0 +1,171 @@
+package com.example.demo.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica con EXPLAIN que el SQL que Hibernate genera para las consultas del repositorio usa los
+ * índices declarados en Sale. El SQL se captura con un StatementInspector y la tabla tiene volumen
+ * suficiente para que el planner elija por costo, sin desactivar el Seq Scan.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SalesIndexUsageTest {
+
+    private static final int ROWS = 200_000;
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 2, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 2, 3, 23, 59, 59);
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES =
+            new PostgreSQLContainer<>("postgres:16.4-alpine")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        r.add("spring.datasource.username", POSTGRES::getUsername);
+        r.add("spring.datasource.password", POSTGRES::getPassword);
+        r.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        r.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        r.add("spring.jpa.show-sql", () -> "false");
+        r.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", CapturingInspector.class::getName);
+    }
+
+    /** Guarda el SQL que Hibernate envía a la base para poder explicarlo tal cual. */
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private SalesRepository salesRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @BeforeEach
+    void seed() {
+        // Una venta cada 2 minutos durante ~9 meses: un rango de 3 días es ~1% de la tabla
+        em.createNativeQuery("""
+                INSERT INTO sales (id, sku, units, price, branch, branch_key, sold_at, created_by)
+                SELECT CAST(gen_random_uuid() AS text),
+                       (ARRAY['OREO_CLASSIC_12', 'OREO_DOUBLE', 'OREO_THINS', 'OREO_GOLD'])[1 + i % 4],
+                       1 + i % 20,
+                       1.99,
+                       (ARRAY['Miraflores', 'San Isidro', 'Surco', 'Barranco'])[1 + (i / 7) % 4],
+                       (ARRAY['miraflores', 'san isidro', 'surco', 'barranco'])[1 + (i / 7) % 4],
+                       TIMESTAMP '2025-01-01 08:00:00' + i * INTERVAL '2 minutes',
+                       'seed.user'
+                FROM generate_series(0, :rows - 1) AS i
+                """).setParameter("rows", ROWS).executeUpdate();
+        em.createNativeQuery("ANALYZE sales").executeUpdate();
+        CapturingInspector.STATEMENTS.clear();
+    }
+
+    // Último SELECT sobre sales que emitió Hibernate
+    private static String emittedSql() {
+        List<String> statements = CapturingInspector.STATEMENTS;
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            if (statements.get(i).toLowerCase().contains("from sales")) {
+                return statements.get(i);
+            }
+        }
+        throw new AssertionError("Hibernate no emitió ninguna consulta sobre sales");
+    }
+
+    // Los parámetros se incrustan como literales: el plan es el mismo que el plan a medida de cada ejecución.
+    // Tras los de la consulta vienen los de paginación, cuya forma (LIMIT/OFFSET o FETCH FIRST) depende del dialecto
+    private String explain(String sql, int limit, Object... params) {
+        StringBuilder bound = new StringBuilder();
+        int next = 0;
+        for (char c : sql.toCharArray()) {
+            if (c != '?') {
+                bound.append(c);
+            } else if (next < params.length) {
+                bound.append(literal(params[next++]));
+            } else {
+                bound.append(bound.toString().toLowerCase().endsWith("offset ") ? 0 : limit);
+            }
+        }
+        assertThat(next).as("parámetros de %s", sql).isEqualTo(params.length);
+        @SuppressWarnings("unchecked")
+        List<Object> rows = em.createNativeQuery("EXPLAIN " + bound).getResultList();
+        return rows.stream().map(Object::toString).collect(Collectors.joining("\n"));
+    }
+
+    private static String literal(Object value) {
+        if (value == null) {
+            return "CAST(NULL AS varchar)";
+        }
+        if (value instanceof LocalDateTime time) {
+            return "TIMESTAMP '" + time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "'";
+        }
+        if (value instanceof Number) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("'", "''") + "'";
+    }
+
+    @Test
+    @DisplayName("findWindow busca desde el cursor sobre (sold_at, id) en lugar de filtrar el rango")
+    void findWindow_seeksSoldAtIndex() {
+        LocalDateTime cursor = LocalDateTime.of(2025, 2, 2, 12, 0);
+        salesRepository.findWindow(FROM, TO, cursor, "ffffffff", PageRequest.of(0, 21));
+
+        String plan = explain(emittedSql(), 21, FROM, TO, cursor, cursor, cursor, "ffffffff");
+
+        assertThat(plan).contains("idx_sales_sold_at_id").doesNotContain("Seq Scan");
+        // La cota del cursor es parte de la condición del índice, no un filtro posterior
+        assertThat(plan).containsPattern("Index Cond: .*sold_at <= '2025-02-02 12:00:00'");
+    }
+
+    @Test
+    @DisplayName("findWindowByBranch usa el índice (branch_key, sold_at, id)")
+    void findWindowByBranch_usesBranchKeyIndex() {
+        LocalDateTime cursor = LocalDateTime.of(2025, 2, 2, 12, 0);
+        salesRepository.findWindowByBranch(FROM, TO, "miraflores", cursor, "ffffffff", PageRequest.of(0, 21));
+
+        String plan = explain(emittedSql(), 21, FROM, TO, "miraflores", cursor, cursor, cursor, "ffffffff");
+
+        assertThat(plan).contains("idx_sales_branch_key_sold_at_id").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    @DisplayName("sumUnitsByBranch de un rango corto no recorre la tabla completa")
+    void sumUnitsByBranch_avoidsSeqScan() {
+        salesRepository.sumUnitsByBranch(FROM, TO, null);
+
+        String plan = explain(emittedSql(), 0, FROM, TO, null, null);
+
+        assertThat(plan).containsPattern("idx_sales_(sold_at_id|sku_sold_at|branch_key_sold_at_id)").doesNotContain("Seq Scan");
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.sales.SalesTotals;
+import com.example.demo.dto.sales.UnitsByKey;
 import com.example.demo.entity.Sale;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -7,6 +9,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -89,7 +94,7 @@ class SalesRepositoryTest {
     }
 
     private static double totalRevenue(List<Sale> sales) {
-        return sales.stream().mapToDouble(s -> s.getUnits() * s.getPrice()).sum();
+        return sales.stream().mapToLong(s -> Math.round(s.getUnits() * s.getPrice() * 100)).sum() / 100.0;
     }
 
     private static String topSkuByUnits(List<Sale> sales) {
@@ -231,4 +236,64 @@ class SalesRepositoryTest {
         String topSku = topSkuByUnits(inRange);
         assertThat(topSku).isIn("OREO_DOUBLE", "OREO_CLASSIC_12");
     }
+
+    // 6) Paginación y filtro por sucursal en base de datos
+    @Test
+    @DisplayName("Paginación en SQL: filtra por sucursal normalizada y ordena por soldAt DESC")
+    void page_byBranchKey_sortedDesc() {
+        LocalDateTime from = t("2025-09-01T00:00:00");
+        LocalDateTime to   = t("2025-09-07T23:59:59");
+        PageRequest firstPage = PageRequest.of(0, 2, Sort.by(Sort.Order.desc("soldAt"), Sort.Order.desc("id")));
+
+        Page<Sale> page = salesRepository.findBySoldAtBetweenAndBranchKey(from, to, "miraflores", firstPage);
+
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(Sale::getSku)
+                .containsExactly("OREO_CLASSIC_12", "OREO_DOUBLE"); // 09-05 y 09-02
+    }
+
+    // 7) Paginación por cursor
+    @Test
+    @DisplayName("Cursor (soldAt, id): recorre todas las ventas del rango sin repetir ni saltar filas")
+    void window_walksWholeRangeWithoutGaps() {
+        LocalDateTime from = t("2025-09-01T00:00:00");
+        LocalDateTime to   = t("2025-09-07T23:59:59");
+
+        List<String> seen = new java.util.ArrayList<>();
+        LocalDateTime cursorSoldAt = to.plusSeconds(1);
+        String cursorId = "";
+        List<Sale> window;
+        do {
+            window = salesRepository.findWindow(from, to, cursorSoldAt, cursorId, PageRequest.of(0, 3));
+            window.forEach(s -> seen.add(s.getId()));
+            if (!window.isEmpty()) {
+                Sale last = window.get(window.size() - 1);
+                cursorSoldAt = last.getSoldAt();
+                cursorId = last.getId();
+            }
+        } while (window.size() == 3);
+
+        assertThat(seen).hasSize(7).doesNotHaveDuplicates();
+    }
+
+    // 8) Agregaciones en SQL
+    @Test
+    @DisplayName("Agregaciones SQL coinciden con el cálculo en memoria sobre el mismo rango")
+    void sqlAggregates_matchInMemoryAggregates() {
+        LocalDateTime from = t("2025-09-01T00:00:00");
+        LocalDateTime to   = t("2025-09-07T23:59:59");
+        List<Sale> inRange = salesRepository.findByDateRange(from, to);
+
+        SalesTotals totals = salesRepository.sumTotals(from, to, null);
+        assertThat(totals.getTotalUnits()).isEqualTo(totalUnits(inRange));
+        assertThat(totals.getTotalRevenue()).isCloseTo(totalRevenue(inRange), offset(0.0001));
+
+        assertThat(salesRepository.sumUnitsBySku(from, to, null))
+                .extracting(UnitsByKey::getKey, UnitsByKey::getUnits)
+                .contains(org.assertj.core.groups.Tuple.tuple("OREO_DOUBLE", 95L));
+        assertThat(salesRepository.sumUnitsByBranch(from, to, "miraflores"))
+                .extracting(UnitsByKey::getKey)
+                .containsExactly("Miraflores");
+    }
 }
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.service.mail.ChartRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChartRendererTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChartRenderer chartRenderer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        chartRenderer = new ChartRenderer(100, meterRegistry);
+    }
+
+    private static SalesAggregates aggregates(int units, double revenue) {
+        return SalesAggregates.builder().totalUnits(units).totalRevenue(revenue).topSku("OREO-CLASSIC").build();
+    }
+
+    @Test
+    @DisplayName("Dibuja un PNG de 600x300 sin salir a la red")
+    void rendersPng() throws Exception {
+        byte[] png = chartRenderer.render(aggregates(1250, 3187.5));
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(image.getWidth()).isEqualTo(600);
+        assertThat(image.getHeight()).isEqualTo(300);
+        // La barra de unidades usa el morado del reporte
+        assertThat(image.getRGB(180, 250) & 0xFFFFFF).isEqualTo(0x6B46C1);
+    }
+
+    @Test
+    @DisplayName("Los mismos valores reutilizan el PNG cacheado")
+    void cachesPerAggregates() {
+        byte[] first = chartRenderer.render(aggregates(1250, 3187.5));
+        // Otros campos del agregado no cambian el gráfico
+        byte[] second = chartRenderer.render(SalesAggregates.builder().totalUnits(1250).totalRevenue(3187.5).build());
+        byte[] other = chartRenderer.render(aggregates(1251, 3187.5));
+
+        assertThat(second).isSameAs(first);
+        assertThat(other).isNotEqualTo(first);
+        assertThat(meterRegistry.timer("report.chart.render").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("El data URI contiene el PNG en base64")
+    void encodesDataUri() {
+        byte[] png = chartRenderer.render(aggregates(0, 0));
+
+        String uri = ChartRenderer.toDataUri(png);
+
+        assertThat(uri).startsWith("data:image/png;base64,");
+        assertThat(Base64.getDecoder().decode(uri.substring(uri.indexOf(',') + 1))).isEqualTo(png);
+    }
+}
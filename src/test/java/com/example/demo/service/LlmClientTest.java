@@ -0,0 +1,310 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.repository.LlmSummaryCacheRepository;
+import com.example.demo.service.summary.LlmCircuitBreaker;
+import com.example.demo.service.summary.LlmClient;
+import com.example.demo.service.summary.LlmRateLimiter;
+import com.example.demo.service.summary.LlmSummaryCache;
+import com.example.demo.service.summary.SummaryInput;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Prueba el cliente contra un servidor HTTP local que simula a GitHub Models.
+ */
+class LlmClientTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 9, 7);
+    private static final String OK_BODY = "{\"choices\":[{\"message\":{\"content\":\"Resumen del modelo\"}}]}";
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private volatile Reply defaultReply = new Reply(200, OK_BODY, 0);
+    private SimpleMeterRegistry meterRegistry;
+
+    private record Reply(int status, String body, long delayMs) {
+    }
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        Reply reply = replies.poll();
+        if (reply == null) {
+            reply = defaultReply;
+        }
+        try {
+            if (reply.delayMs() > 0) {
+                Thread.sleep(reply.delayMs());
+            }
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // El cliente cortó la conexión por timeout
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private LlmClient client(Duration timeout, int maxRetries, int failureThreshold, Duration openDuration) {
+        return client(timeout, maxRetries, failureThreshold, openDuration,
+                new LlmRateLimiter(0, 0, Duration.ofSeconds(1), meterRegistry));
+    }
+
+    private LlmClient client(Duration timeout, int maxRetries, int failureThreshold, Duration openDuration,
+                             LlmRateLimiter rateLimiter) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .build();
+        LlmSummaryCache cache = new LlmSummaryCache(mock(LlmSummaryCacheRepository.class), meterRegistry,
+                100, Duration.ofHours(1), false, 100);
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(failureThreshold, openDuration, meterRegistry);
+        return new LlmClient(webClient, cache, breaker, rateLimiter, "gpt-4", "token", timeout,
+                maxRetries, Duration.ofMillis(10), Duration.ofMillis(50), 0.5);
+    }
+
+    private LlmClient client() {
+        return client(Duration.ofSeconds(2), 2, 5, Duration.ofSeconds(30));
+    }
+
+    private static SalesAggregates aggregates(int units) {
+        return SalesAggregates.builder().totalUnits(units).totalRevenue(units * 10.0).topSku("OREO_001").build();
+    }
+
+    @Test
+    @DisplayName("Devuelve el contenido del modelo y cachea la respuesta")
+    void returnsModelSummary() {
+        LlmClient client = client();
+
+        assertThat(client.generateSummary(aggregates(10), "Miraflores", FROM, TO, false)).isEqualTo("Resumen del modelo");
+        assertThat(client.generateSummary(aggregates(10), "Miraflores", FROM, TO, false)).isEqualTo("Resumen del modelo");
+
+        assertThat(hits.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("La API reactiva emite el resumen sin bloquear")
+    void reactiveApi() {
+        StepVerifier.create(client().summarize(aggregates(10), "Miraflores", FROM, TO, false))
+                .expectNext("Resumen del modelo")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Reintenta los 5xx y devuelve la respuesta cuando el endpoint se recupera")
+    void retriesServerErrors() {
+        replies.add(new Reply(503, "{}", 0));
+        replies.add(new Reply(500, "{}", 0));
+
+        assertThat(client().generateSummary(aggregates(10), "Miraflores", FROM, TO, false)).isEqualTo("Resumen del modelo");
+        assertThat(hits.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Un 4xx no se reintenta y cae al resumen de respaldo")
+    void doesNotRetryClientErrors() {
+        defaultReply = new Reply(400, "{}", 0);
+
+        assertThat(client().generateSummary(aggregates(10), "Miraflores", FROM, TO, false)).contains("(fallback)");
+        assertThat(hits.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Un endpoint lento no retiene el hilo más allá del timeout por intento")
+    void timesOutSlowEndpoint() {
+        defaultReply = new Reply(200, OK_BODY, 2_000);
+        LlmClient client = client(Duration.ofMillis(200), 1, 5, Duration.ofSeconds(30));
+
+        long start = System.nanoTime();
+        String summary = client.generateSummary(aggregates(10), "Miraflores", FROM, TO, false);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(summary).contains("(fallback)");
+        assertThat(elapsedMs).isLessThan(1_500);
+    }
+
+    @Test
+    @DisplayName("El circuit breaker se abre tras fallos seguidos y luego deja pasar una prueba")
+    void circuitBreakerShortCircuits() throws InterruptedException {
+        defaultReply = new Reply(500, "{}", 0);
+        LlmClient client = client(Duration.ofSeconds(2), 0, 2, Duration.ofMillis(300));
+
+        client.generateSummary(aggregates(1), "Miraflores", FROM, TO, false);
+        client.generateSummary(aggregates(2), "Miraflores", FROM, TO, false);
+        assertThat(hits.get()).isEqualTo(2);
+
+        assertThat(client.generateSummary(aggregates(3), "Miraflores", FROM, TO, false)).contains("(fallback)");
+        assertThat(hits.get()).isEqualTo(2);
+        assertThat(meterRegistry.counter("llm.circuit.short_circuited").count()).isEqualTo(1.0);
+
+        Thread.sleep(350);
+        defaultReply = new Reply(200, OK_BODY, 0);
+        assertThat(client.generateSummary(aggregates(4), "Miraflores", FROM, TO, false)).isEqualTo("Resumen del modelo");
+        assertThat(client.generateSummary(aggregates(5), "Miraflores", FROM, TO, false)).isEqualTo("Resumen del modelo");
+        assertThat(hits.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Sin cuota disponible dentro de la espera máxima se usa el respaldo sin llamar al endpoint")
+    void rateLimitedUsesFallback() {
+        LlmRateLimiter oneRequestPerMinute = new LlmRateLimiter(1, 100_000, Duration.ofMillis(100), meterRegistry);
+        LlmClient client = client(Duration.ofSeconds(2), 0, 5, Duration.ofSeconds(30), oneRequestPerMinute);
+
+        assertThat(client.generateSummary(aggregates(1), "Miraflores", FROM, TO, true)).isEqualTo("Resumen del modelo");
+        assertThat(client.generateSummary(aggregates(2), "Miraflores", FROM, TO, true)).contains("(fallback)");
+        assertThat(hits.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Con el circuito abierto no se espera cuota; si la prueba half-open no obtiene cuota, se libera")
+    void openCircuitSkipsRateLimiter() throws InterruptedException {
+        defaultReply = new Reply(500, "{}", 0);
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(1, Duration.ofMillis(300), meterRegistry);
+        LlmRateLimiter oneRequestPerMinute = new LlmRateLimiter(1, 100_000, Duration.ofMillis(1_500), meterRegistry);
+        LlmClient client = new LlmClient(
+                WebClient.builder().baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1").build(),
+                new LlmSummaryCache(mock(LlmSummaryCacheRepository.class), meterRegistry, 10, Duration.ofHours(1), false, 10),
+                breaker, oneRequestPerMinute, "gpt-4", "token", Duration.ofSeconds(2), 0,
+                Duration.ofMillis(10), Duration.ofMillis(10), 0.5);
+
+        client.generateSummary(aggregates(1), "Miraflores", FROM, TO, false);
+        assertThat(breaker.state()).isEqualTo(LlmCircuitBreaker.State.OPEN);
+
+        long start = System.nanoTime();
+        assertThat(client.generateSummary(aggregates(2), "Miraflores", FROM, TO, false)).contains("(fallback)");
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(500);
+        assertThat(oneRequestPerMinute.queued()).isZero();
+
+        Thread.sleep(350);
+        assertThat(client.generateSummary(aggregates(3), "Miraflores", FROM, TO, false)).contains("(fallback)");
+        assertThat(hits.get()).isEqualTo(1);
+        assertThat(breaker.state()).isEqualTo(LlmCircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Sin token no se llama al endpoint")
+    void noTokenUsesFallback() {
+        WebClient webClient = WebClient.builder().baseUrl("http://127.0.0.1:" + server.getAddress().getPort()).build();
+        LlmClient client = new LlmClient(webClient,
+                new LlmSummaryCache(mock(LlmSummaryCacheRepository.class), meterRegistry, 10, Duration.ofHours(1), false, 10),
+                new LlmCircuitBreaker(5, Duration.ofSeconds(30), meterRegistry),
+                new LlmRateLimiter(0, 0, Duration.ofSeconds(1), meterRegistry),
+                "gpt-4", "", Duration.ofSeconds(1), 0, Duration.ofMillis(10), Duration.ofMillis(10), 0.5);
+
+        assertThat(client.generateSummary(aggregates(10), "Miraflores", FROM, TO, false)).contains("(fallback)");
+        assertThat(hits.get()).isZero();
+    }
+
+    private static String completion(String content) {
+        return "{\"choices\":[{\"message\":{\"content\":" + jsonString(content) + "}}]}";
+    }
+
+    private static String jsonString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    private static List<SummaryInput> branches(String... names) {
+        return Arrays.stream(names)
+                .map(name -> new SummaryInput(aggregates(name.length()), name, FROM, TO))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("Un lote se resuelve con una sola llamada y se separa por sucursal")
+    void batchSplitsJsonArray() {
+        replies.add(new Reply(200, completion("```json\n[{\"id\": 2, \"resumen\": \"B\"}, {\"id\": 1, \"resumen\": \"A\"}]\n```"), 0));
+        LlmClient client = client();
+
+        List<String> summaries = client.summarizeBatch(branches("Miraflores", "San Isidro"), false).block();
+
+        assertThat(summaries).containsExactly("A", "B");
+        assertThat(hits.get()).isEqualTo(1);
+        // El mismo lote se sirve de la caché; una solicitud suelta no reutiliza respuestas a un prompt que no envió
+        assertThat(client.summarizeBatch(branches("Miraflores", "San Isidro"), false).block()).containsExactly("A", "B");
+        assertThat(hits.get()).isEqualTo(1);
+        assertThat(client.generateSummary(aggregates("Miraflores".length()), "Miraflores", FROM, TO, false))
+                .isEqualTo("Resumen del modelo");
+        assertThat(hits.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Si el modelo omite una sucursal, solo esa se pide por separado")
+    void batchFallsBackPerMissingItem() {
+        replies.add(new Reply(200, completion("[{\"id\": 1, \"resumen\": \"A\"}]"), 0));
+
+        List<String> summaries = client().summarizeBatch(branches("Miraflores", "San Isidro"), false).block();
+
+        assertThat(summaries).containsExactly("A", "Resumen del modelo");
+        assertThat(hits.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Una respuesta que no es JSON se resuelve con llamadas individuales")
+    void batchUnparsableResponse() {
+        replies.add(new Reply(200, completion("Lo siento, no puedo ayudar con eso."), 0));
+
+        List<String> summaries = client().summarizeBatch(branches("Miraflores", "San Isidro", "Surco"), false).block();
+
+        assertThat(summaries).containsOnly("Resumen del modelo").hasSize(3);
+        assertThat(hits.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Si la llamada del lote falla se usa el respaldo de cada sucursal sin más llamadas")
+    void batchTransportFailureUsesFallback() {
+        defaultReply = new Reply(500, "{}", 0);
+        LlmClient client = client(Duration.ofSeconds(2), 0, 5, Duration.ofSeconds(30));
+
+        List<String> summaries = client.summarizeBatch(branches("Miraflores", "San Isidro"), false).block();
+
+        assertThat(summaries).hasSize(2).allMatch(summary -> summary.contains("(fallback)"));
+        assertThat(summaries.get(1)).contains("San Isidro");
+        assertThat(hits.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.service;
+
+import com.example.demo.service.summary.LlmRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class LlmRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    // 600 tokens por minuto: el bucket recupera 10 tokens por segundo
+    private LlmRateLimiter limiter(Duration maxWait) {
+        return new LlmRateLimiter(1_000, 600, maxWait, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Dentro del presupuesto la llamada sale sin esperar")
+    void grantsWithinBudget() {
+        LlmRateLimiter limiter = limiter(Duration.ofSeconds(5));
+
+        assertThat(limiter.acquire(300, false).block(Duration.ofMillis(100))).isTrue();
+        assertThat(limiter.acquire(300, false).block(Duration.ofMillis(100))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Sin tokens disponibles la llamada espera a que el bucket se rellene")
+    void waitsForRefill() {
+        LlmRateLimiter limiter = limiter(Duration.ofSeconds(5));
+        limiter.acquire(600, false).block();
+
+        long start = System.nanoTime();
+        assertThat(limiter.acquire(5, false).block()).isTrue();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isBetween(300L, 2_000L);
+    }
+
+    @Test
+    @DisplayName("Si vence la espera máxima se informa sin error")
+    void expiresAfterDeadline() {
+        LlmRateLimiter limiter = limiter(Duration.ofMillis(100));
+        limiter.acquire(600, false).block();
+
+        assertThat(limiter.acquire(600, false).block()).isFalse();
+        assertThat(limiter.queued()).isZero();
+        assertThat(meterRegistry.counter("llm.rate.expired").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Los reportes premium pasan antes que los normales; dentro de cada grupo, por llegada")
+    void premiumFirstThenFifo() {
+        LlmRateLimiter limiter = limiter(Duration.ofSeconds(10));
+        limiter.acquire(600, false).block();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Mono.when(
+                limiter.acquire(3, false).doOnNext(ok -> order.add("normal-1")),
+                limiter.acquire(3, false).doOnNext(ok -> order.add("normal-2")),
+                limiter.acquire(3, true).doOnNext(ok -> order.add("premium-1")),
+                limiter.acquire(3, true).doOnNext(ok -> order.add("premium-2"))
+        ).subscribe();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> order.size() == 4);
+        assertThat(order).containsExactly("premium-1", "premium-2", "normal-1", "normal-2");
+    }
+
+    @Test
+    @DisplayName("Los reintentos descuentan presupuesto sin pasar por la cola")
+    void chargeDebitsBudget() {
+        LlmRateLimiter limiter = limiter(Duration.ofMillis(100));
+
+        limiter.charge(600);
+
+        assertThat(limiter.acquire(300, false).block()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Con límites en cero no se restringe")
+    void unlimitedWhenDisabled() {
+        LlmRateLimiter limiter = new LlmRateLimiter(0, 0, Duration.ofMillis(10), meterRegistry);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.acquire(10_000, false).block()).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("La estimación suma max_tokens y el largo de los mensajes")
+    void estimatesTokens() {
+        assertThat(LlmRateLimiter.estimateTokens(200, "a".repeat(400), "b".repeat(40))).isEqualTo(200 + 100 + 4 + 10 + 4);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.service.summary.LlmClient;
+import com.example.demo.service.summary.LlmSummaryBatcher;
+import com.example.demo.service.summary.SummaryInput;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LlmSummaryBatcherTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 9, 7);
+
+    @Mock
+    private LlmClient llmClient;
+
+    private static SalesAggregates aggregates() {
+        return SalesAggregates.builder().totalUnits(1).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void echoBranches() {
+        when(llmClient.summarizeBatch(anyList(), anyBoolean())).thenAnswer(inv -> {
+            List<SummaryInput> inputs = inv.getArgument(0);
+            return Mono.just(inputs.stream().map(input -> "Resumen " + input.branch()).toList());
+        });
+    }
+
+    @Test
+    @DisplayName("Los pedidos dentro de la ventana salen en una sola llamada y cada uno recibe el suyo")
+    @SuppressWarnings("unchecked")
+    void batchesConcurrentRequests() {
+        echoBranches();
+        LlmSummaryBatcher batcher = new LlmSummaryBatcher(llmClient, 8, Duration.ofMillis(200), new SimpleMeterRegistry());
+
+        List<String> summaries = Flux.just("Miraflores", "San Isidro", "Surco")
+                .flatMapSequential(branch -> batcher.summarize(aggregates(), branch, FROM, TO, false))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(summaries).containsExactly("Resumen Miraflores", "Resumen San Isidro", "Resumen Surco");
+        ArgumentCaptor<List<SummaryInput>> batch = ArgumentCaptor.forClass(List.class);
+        verify(llmClient, times(1)).summarizeBatch(batch.capture(), eq(false));
+        assertThat(batch.getValue()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Un lote lleno sale sin esperar la ventana y hereda la prioridad premium")
+    void flushesWhenFull() {
+        echoBranches();
+        LlmSummaryBatcher batcher = new LlmSummaryBatcher(llmClient, 2, Duration.ofSeconds(30), new SimpleMeterRegistry());
+
+        List<String> summaries = Flux.just("Miraflores", "San Isidro")
+                .flatMapSequential(branch -> batcher.summarize(aggregates(), branch, FROM, TO, branch.equals("San Isidro")))
+                .collectList()
+                .block(Duration.ofSeconds(2));
+
+        assertThat(summaries).containsExactly("Resumen Miraflores", "Resumen San Isidro");
+        verify(llmClient).summarizeBatch(anyList(), eq(true));
+    }
+
+    @Test
+    @DisplayName("Sin ventana de lote cada pedido va directo al cliente")
+    void disabledBatching() {
+        when(llmClient.summarize(any(), any(), any(), any(), anyBoolean())).thenReturn(Mono.just("Directo"));
+        LlmSummaryBatcher batcher = new LlmSummaryBatcher(llmClient, 8, Duration.ZERO, new SimpleMeterRegistry());
+
+        assertThat(batcher.generateSummary(aggregates(), "Miraflores", FROM, TO, false)).isEqualTo("Directo");
+        verify(llmClient, never()).summarizeBatch(anyList(), anyBoolean());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.LlmSummaryCacheEntry;
+import com.example.demo.repository.LlmSummaryCacheRepository;
+import com.example.demo.service.summary.LlmSummaryCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LlmSummaryCacheTest {
+
+    @Mock
+    private LlmSummaryCacheRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmSummaryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new LlmSummaryCache(repository, meterRegistry, 100, Duration.ofHours(1), true, 2);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.counter("llm.summary.cache.lookups", "result", result).count();
+    }
+
+    @Test
+    @DisplayName("La clave depende del modelo y de ambos prompts")
+    void keyIsContentAddressed() {
+        String key = LlmSummaryCache.key("gpt-4", "sistema", "usuario");
+
+        assertThat(key).hasSize(64).isEqualTo(LlmSummaryCache.key("gpt-4", "sistema", "usuario"));
+        assertThat(key).isNotEqualTo(LlmSummaryCache.key("gpt-4o", "sistema", "usuario"));
+        assertThat(key).isNotEqualTo(LlmSummaryCache.key("gpt-4", "sistema", "otro"));
+        assertThat(LlmSummaryCache.key("m", "ab", "c")).isNotEqualTo(LlmSummaryCache.key("m", "a", "bc"));
+    }
+
+    @Test
+    @DisplayName("Tras guardar, la lectura sale de memoria sin consultar la base")
+    void putThenGetHitsMemory() {
+        cache.put("k1", "gpt-4", "Resumen");
+
+        assertThat(cache.get("k1")).contains("Resumen");
+        verify(repository).save(any(LlmSummaryCacheEntry.class));
+        verify(repository, never()).findById(any());
+        assertThat(lookups("memory")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Un fallo de memoria se resuelve desde la base y se promueve a memoria")
+    void dbTierSurvivesRestart() {
+        when(repository.findById("k1")).thenReturn(Optional.of(LlmSummaryCacheEntry.builder()
+                .key("k1").modelId("gpt-4").summary("Persistido").createdAt(LocalDateTime.now()).build()));
+
+        assertThat(cache.get("k1")).contains("Persistido");
+        assertThat(cache.get("k1")).contains("Persistido");
+
+        verify(repository, times(1)).findById("k1");
+        assertThat(lookups("db")).isEqualTo(1.0);
+        assertThat(lookups("memory")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Las entradas persistidas más viejas que el TTL se ignoran")
+    void expiredDbEntryIsMiss() {
+        when(repository.findById("k1")).thenReturn(Optional.of(LlmSummaryCacheEntry.builder()
+                .key("k1").modelId("gpt-4").summary("Viejo").createdAt(LocalDateTime.now().minusHours(2)).build()));
+
+        assertThat(cache.get("k1")).isEmpty();
+        assertThat(lookups("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Sin nivel persistente no se toca el repositorio")
+    void memoryOnlyMode() {
+        LlmSummaryCache memoryOnly = new LlmSummaryCache(repository, meterRegistry, 100, Duration.ofHours(1), false, 2);
+
+        memoryOnly.put("k1", "gpt-4", "Resumen");
+        assertThat(memoryOnly.get("k1")).contains("Resumen");
+        assertThat(memoryOnly.get("k2")).isEmpty();
+        memoryOnly.prune();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("La depuración borra expiradas y recorta las más antiguas sobre el máximo")
+    @SuppressWarnings("unchecked")
+    void pruneEnforcesSizeLimit() {
+        when(repository.deleteCreatedBefore(any())).thenReturn(1);
+        when(repository.count()).thenReturn(5L);
+        when(repository.findOldestKeys(any(Pageable.class))).thenReturn(List.of("a", "b", "c"));
+
+        cache.prune();
+
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        verify(repository).findOldestKeys(page.capture());
+        assertThat(page.getValue().getPageSize()).isEqualTo(3);
+        verify(repository).deleteAllByIdInBatch(List.of("a", "b", "c"));
+    }
+
+    @Test
+    @DisplayName("Un error de la base no rompe la generación del resumen")
+    void dbFailuresAreTolerated() {
+        when(repository.findById("k1")).thenThrow(new RuntimeException("db caída"));
+        when(repository.save(any())).thenThrow(new RuntimeException("db caída"));
+
+        assertThat(cache.get("k1")).isEmpty();
+        cache.put("k1", "gpt-4", "Resumen");
+        assertThat(cache.get("k1")).contains("Resumen");
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.demo.service;
+
+import com.example.demo.service.mail.MailDispatcher;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MailDispatcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GreenMail greenMail;
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (greenMail != null) {
+            greenMail.stop();
+        }
+    }
+
+    private MailDispatcher dispatcher(JavaMailSender sender, int capacity, int maxRetries) {
+        return dispatcher(sender, capacity, maxRetries, Duration.ofSeconds(30));
+    }
+
+    private MailDispatcher dispatcher(JavaMailSender sender, int capacity, int maxRetries, Duration sendTimeout) {
+        return new MailDispatcher(sender, capacity, 20, 1, Duration.ofMillis(50), sendTimeout,
+                Duration.ofSeconds(30), maxRetries, Duration.ofMillis(100), Duration.ofMillis(500), 0, meterRegistry);
+    }
+
+    private JavaMailSenderImpl smtpSender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        sender.setUsername("reportes@oreo.com");
+        sender.setPassword("secreto");
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", "true");
+        properties.put("mail.smtp.connectiontimeout", "2000");
+        properties.put("mail.smtp.timeout", "2000");
+        sender.setJavaMailProperties(properties);
+        return sender;
+    }
+
+    private static MimeMessage message(JavaMailSender sender, String to) throws MessagingException {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+        helper.setFrom("reportes@oreo.com");
+        helper.setTo(to);
+        helper.setSubject("Reporte Oreo");
+        helper.setText("Resumen semanal");
+        return message;
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Test
+    @DisplayName("Muchos correos salen por una sola conexión SMTP autenticada")
+    void reusesOneConnection() throws Exception {
+        greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        greenMail.start();
+        greenMail.setUser("reportes@oreo.com", "secreto");
+        JavaMailSenderImpl sender = smtpSender(greenMail.getSmtp().getPort());
+        dispatcher = dispatcher(sender, 100, 0);
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            results.add(dispatcher.submit(message(sender, "sucursal" + i + "@oreo.com"), "req_" + i));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(20, TimeUnit.SECONDS);
+        assertThat(greenMail.getReceivedMessages()).hasSize(40);
+        assertThat(counter("mail.dispatch.connections")).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.dispatch.latency").tag("outcome", "sent").timer().count()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("Si el servidor SMTP no responde se reintenta con backoff hasta que vuelve")
+    void retriesUntilServerIsUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        JavaMailSenderImpl sender = smtpSender(port);
+        dispatcher = dispatcher(sender, 10, 10);
+
+        CompletableFuture<Void> result = dispatcher.submit(message(sender, "gerente@oreo.com"), "req_1");
+        await().atMost(Duration.ofSeconds(5)).until(() -> counter("mail.dispatch.retries") >= 1);
+        assertThat(result).isNotDone();
+
+        greenMail = new GreenMail(new ServerSetup(port, "localhost", ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+        greenMail.setUser("reportes@oreo.com", "secreto");
+
+        result.get(10, TimeUnit.SECONDS);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Un error transitorio se reintenta y uno permanente falla sin reintentos")
+    void classifiesFailures() throws Exception {
+        JavaMailSender sender = mock(JavaMailSender.class);
+        MimeMessage flaky = message(new JavaMailSenderImpl(), "a@oreo.com");
+        MimeMessage invalid = message(new JavaMailSenderImpl(), "b@oreo.com");
+        doThrow(new MailSendException(Map.of(flaky, new MessagingException("Connection reset"))))
+                .doNothing()
+                .when(sender).send(any(MimeMessage[].class));
+        dispatcher = dispatcher(sender, 10, 3);
+
+        dispatcher.submit(flaky, "req_1").get(5, TimeUnit.SECONDS);
+        assertThat(counter("mail.dispatch.retries")).isEqualTo(1);
+
+        doThrow(new MailSendException(Map.of(invalid, new SendFailedException("Invalid Addresses"))))
+                .when(sender).send(any(MimeMessage[].class));
+        assertThatThrownBy(() -> dispatcher.send(invalid, "req_2"))
+                .isInstanceOf(MailSendException.class)
+                .hasCauseInstanceOf(SendFailedException.class);
+        assertThat(counter("mail.dispatch.retries")).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.dispatch.latency").tag("outcome", "failed").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Con la cola llena el envío se rechaza en lugar de esperar sin límite")
+    void rejectsWhenQueueIsFull() throws Exception {
+        JavaMailSender sender = mock(JavaMailSender.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(sender).send(any(MimeMessage[].class));
+        dispatcher = dispatcher(sender, 1, 0);
+        Session session = Session.getInstance(new Properties());
+
+        CompletableFuture<Void> first = dispatcher.submit(new MimeMessage(session), "req_1");
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = dispatcher.submit(new MimeMessage(session), "req_2");
+        CompletableFuture<Void> rejected = dispatcher.submit(new MimeMessage(session), "req_3");
+
+        assertThat(meterRegistry.get("mail.dispatch.queued").gauge().value()).isEqualTo(1);
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+        CompletableFuture.allOf(first, queued).get(5, TimeUnit.SECONDS);
+        verify(sender, times(2)).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    @DisplayName("Un correo que agotó la espera se retira de la cola y no sale después")
+    void timedOutMailIsNotSentLater() throws Exception {
+        JavaMailSender sender = mock(JavaMailSender.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(sender).send(any(MimeMessage[].class));
+        dispatcher = dispatcher(sender, 10, 0, Duration.ofMillis(200));
+        Session session = Session.getInstance(new Properties());
+
+        CompletableFuture<Void> first = dispatcher.submit(new MimeMessage(session), "req_1");
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> dispatcher.send(new MimeMessage(session), "req_2"))
+                .isInstanceOf(MailSendException.class)
+                .hasMessageContaining("Se agotó la espera");
+        assertThat(meterRegistry.get("mail.dispatch.queued").gauge().value()).isZero();
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        verify(sender, after(300).times(1)).send(any(MimeMessage[].class));
+    }
+}
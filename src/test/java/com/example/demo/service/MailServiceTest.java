@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.service.mail.ChartRenderer;
+import com.example.demo.service.mail.MailDispatcher;
+import com.example.demo.service.mail.MailService;
+import com.example.demo.service.mail.MailTemplates;
+import com.example.demo.service.mail.PdfAttachment;
+import com.example.demo.service.mail.PdfGenerator;
+import com.example.demo.service.mail.RenderedReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.BodyPart;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MailServiceTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+    @Mock
+    private MailDispatcher mailDispatcher;
+    @Mock
+    private PdfGenerator pdfGenerator;
+
+    private MailService mailService;
+
+    @BeforeEach
+    void setUp() {
+        mailService = new MailService(mailSender, mailDispatcher, pdfGenerator, new ChartRenderer(100, new SimpleMeterRegistry()),
+                new MailTemplates());
+    }
+
+    private static ReportRequestedEvent event(boolean includeCharts, boolean attachPdf) {
+        return event(true, includeCharts, attachPdf);
+    }
+
+    private static ReportRequestedEvent event(boolean premium, boolean includeCharts, boolean attachPdf) {
+        return ReportRequestedEvent.builder()
+                .requestId("req_1")
+                .branch("Miraflores")
+                .from(LocalDate.of(2025, 9, 1))
+                .to(LocalDate.of(2025, 9, 7))
+                .emailTo("gerente@oreo.com")
+                .premium(premium)
+                .includeCharts(includeCharts)
+                .attachPdf(attachPdf)
+                .build();
+    }
+
+    private static SalesAggregates aggregates() {
+        return SalesAggregates.builder().totalUnits(1250).totalRevenue(3187.5).topSku("OREO-CLASSIC").build();
+    }
+
+    @Test
+    @DisplayName("El gráfico va inline en el correo y embebido en el PDF, sin URLs externas")
+    void chartIsLocal() throws Exception {
+        when(pdfGenerator.generateAttachment(anyString())).thenReturn(PdfAttachment.inMemory(new byte[]{1}));
+        when(mailSender.createMimeMessage()).thenReturn(new MimeMessage(Session.getInstance(new Properties())));
+
+        RenderedReport report = mailService.render(event(true, true), aggregates(), "Buena semana");
+
+        assertThat(report.getHtmlBody()).contains("src='cid:grafico-resumen'").doesNotContain("quickchart");
+        ArgumentCaptor<String> pdfHtml = ArgumentCaptor.forClass(String.class);
+        verify(pdfGenerator).generateAttachment(pdfHtml.capture());
+        assertThat(pdfHtml.getValue()).contains("src='data:image/png;base64,").doesNotContain("cid:");
+
+        MimeMessage message = mailService.buildSummaryEmail(report, "gerente@oreo.com", "req_1");
+        message.saveChanges();
+        List<Part> parts = new ArrayList<>();
+        collectParts(message, parts);
+        assertThat(parts).anySatisfy(part -> {
+            assertThat(part.getContentType()).startsWith("image/png");
+            assertThat(((BodyPart) part).getHeader("Content-ID")).containsExactly("<grafico-resumen>");
+        });
+        assertThat(parts).anySatisfy(part -> assertThat(part.getFileName()).isEqualTo("reporte_oreo.pdf"));
+    }
+
+    @Test
+    @DisplayName("Sin gráficos no se dibuja ni se adjunta imagen")
+    void noChartWhenNotRequested() {
+        RenderedReport report = mailService.render(event(false, false), aggregates(), "Buena semana");
+
+        assertThat(report.getChartPng()).isNull();
+        assertThat(report.getHtmlBody()).doesNotContain("<img");
+        verifyNoInteractions(pdfGenerator);
+    }
+
+    @Test
+    @DisplayName("Un reporte no premium se envía con el cuerpo de texto plano")
+    void plainReportHasTextBody() throws Exception {
+        when(mailSender.createMimeMessage()).thenReturn(new MimeMessage(Session.getInstance(new Properties())));
+
+        RenderedReport report = mailService.render(event(false, false, false), aggregates(), "Buena semana");
+        MimeMessage message = mailService.buildSummaryEmail(report, "gerente@oreo.com", "req_1");
+        message.saveChanges();
+
+        assertThat(report.getHtmlBody()).isNull();
+        assertThat(message.getContentType()).startsWith("text/plain");
+        assertThat((String) message.getContent())
+                .startsWith("Buena semana")
+                .contains("• Total unidades: 1250", "• SKU más vendido: OREO-CLASSIC");
+        verifyNoInteractions(pdfGenerator);
+    }
+
+    @Test
+    @DisplayName("El envío espera al despachador y reporta su fallo como error de envío")
+    void sendWaitsForDispatcher() {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        doThrow(new MailSendException("SMTP caído")).when(mailDispatcher).send(message, "req_1");
+
+        assertThatThrownBy(() -> mailService.send(message, "req_1"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Error al enviar el email");
+        verify(mailSender, never()).send(any(MimeMessage.class));
+    }
+
+    private static void collectParts(Part part, List<Part> parts) throws Exception {
+        if (part.getContent() instanceof Multipart multipart) {
+            for (int i = 0; i < multipart.getCount(); i++) {
+                collectParts(multipart.getBodyPart(i), parts);
+            }
+        } else {
+            parts.add(part);
+        }
+    }
+}
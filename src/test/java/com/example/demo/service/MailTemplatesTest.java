@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.service.mail.CompiledTemplate;
+import com.example.demo.service.mail.MailTemplates;
+import com.example.demo.service.mail.PdfGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MailTemplatesTest {
+
+    private final MailTemplates templates = new MailTemplates();
+
+    private static ReportRequestedEvent event() {
+        return ReportRequestedEvent.builder()
+                .requestId("req_1")
+                .branch("Miraflores")
+                .from(LocalDate.of(2025, 9, 1))
+                .to(LocalDate.of(2025, 9, 7))
+                .emailTo("gerente@oreo.com")
+                .premium(true)
+                .includeCharts(true)
+                .build();
+    }
+
+    private static SalesAggregates aggregates() {
+        return SalesAggregates.builder().totalUnits(1250).totalRevenue(3187.5)
+                .topSku("OREO-CLASSIC").topBranch("San Isidro").build();
+    }
+
+    @Test
+    @DisplayName("El texto del LLM se escapa y conserva sus saltos de línea")
+    void escapesSummary() {
+        String html = templates.premiumHtml(event(), aggregates(), "Ventas <b>récord</b> & más\n<script>x()</script>",
+                "cid:grafico");
+
+        assertThat(html)
+                .contains("Ventas &lt;b&gt;récord&lt;/b&gt; &amp; más<br/>&lt;script&gt;")
+                .doesNotContain("<script>")
+                .contains("<p>1250</p>", "<p>S/ " + String.format("%.2f", 3187.5) + "</p>")
+                .contains("<h3>SKU Top</h3><p>OREO-CLASSIC</p>", "<h3>Sucursal Top</h3><p>San Isidro</p>")
+                .contains("src='cid:grafico'", "premium-badge");
+    }
+
+    @Test
+    @DisplayName("Los emojis de la plantilla y del texto salen como referencias numéricas")
+    void encodesNonLatin1() {
+        String html = templates.premiumHtml(event(), aggregates(), "Buena semana 🎉", null);
+
+        assertThat(html).contains("&#127850; Reporte Semanal Oreo", "Buena semana &#127881;");
+        assertThat(html.chars().allMatch(c -> c <= 0xFF)).isTrue();
+    }
+
+    @Test
+    @DisplayName("El HTML premium es XHTML bien formado y se puede pasar a PDF")
+    void premiumHtmlIsWellFormed() throws Exception {
+        String html = templates.premiumHtml(event(), aggregates(), "Línea 1\nLínea 2", null);
+
+        DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(html)));
+        assertThat(html).doesNotContain("<img");
+
+        PdfGenerator pdfGenerator = new PdfGenerator(1, Duration.ofSeconds(30), false, "", "memory", "", 0,
+                new SimpleMeterRegistry());
+        try {
+            byte[] pdf = pdfGenerator.generatePdf(html);
+            assertThat(new String(pdf, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        } finally {
+            pdfGenerator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Los cuerpos de texto mantienen el formato de siempre")
+    void textBodies() {
+        assertThat(templates.failureBody(event(), "LLM caído")).isEqualTo(
+                "No fue posible generar el resumen solicitado.\n\n" +
+                        "Detalles:\n" +
+                        "• ID de solicitud: req_1\n" +
+                        "• Periodo: 2025-09-01 a 2025-09-07\n" +
+                        "• Sucursal: Miraflores\n" +
+                        "• Motivo del error: LLM caído\n\n" +
+                        "Por favor, contacte al administrador del sistema.\n\n" +
+                        "--\nSistema de Reportes Oreo Insight Factory");
+
+        assertThat(templates.plainBody(event(), aggregates(), "Resumen"))
+                .startsWith("Resumen\n\n" + "=".repeat(52) + "\nDETALLES DEL REPORTE\n")
+                .contains("• Total unidades: 1250\n")
+                .endsWith("• SKU más vendido: OREO-CLASSIC\n• Sucursal top: San Isidro\n\n" +
+                        "--\nSistema de Reportes Oreo Insight Factory");
+    }
+
+    @Test
+    @DisplayName("Los huecos dobles se escapan, los triples no, y un hueco sin valor es un error")
+    void compiledTemplateSlots() {
+        CompiledTemplate template = CompiledTemplate.html("<p>{{texto}}</p>{{{fragmento}}}");
+
+        assertThat(template.render(Map.of("texto", "a < b", "fragmento", "<hr/>"))).isEqualTo("<p>a &lt; b</p><hr/>");
+        assertThat(CompiledTemplate.text("{{texto}}").render(Map.of("texto", "a < b"))).isEqualTo("a < b");
+        assertThatThrownBy(() -> template.render(Map.of("texto", "x")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fragmento");
+        assertThatThrownBy(() -> CompiledTemplate.html("<p>{{texto</p>"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
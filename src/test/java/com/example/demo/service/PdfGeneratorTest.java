@@ -0,0 +1,176 @@
+package com.example.demo.service;
+
+import com.example.demo.service.mail.PdfAttachment;
+import com.example.demo.service.mail.PdfGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class PdfGeneratorTest {
+
+    private static final String HTML = "<!DOCTYPE html><html><head><meta charset='UTF-8'/>" +
+            "<style>body { font-family: Arial, sans-serif; }</style></head>" +
+            "<body><h1>Reporte Oreo</h1><p>Se vendieron 10 unidades.</p></body></html>";
+
+    private SimpleMeterRegistry meterRegistry;
+    private PdfGenerator pdfGenerator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pdfGenerator = new PdfGenerator(2, Duration.ofSeconds(30), true, "", "memory", "", 4 * 1024 * 1024, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pdfGenerator.shutdown();
+    }
+
+    @Test
+    @DisplayName("Genera un PDF válido y registra el tiempo de render")
+    void rendersPdf() {
+        byte[] pdf = pdfGenerator.generatePdf(HTML);
+
+        assertThat(new String(pdf, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        assertThat(meterRegistry.timer("pdf.render").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Los renders concurrentes pasan por el pool acotado y terminan todos")
+    void rendersConcurrentlyOnBoundedPool() {
+        List<CompletableFuture<byte[]>> renders = IntStream.range(0, 6)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> pdfGenerator.generatePdf(HTML)))
+                .toList();
+
+        assertThat(renders).allSatisfy(render -> assertThat(render.join()).isNotEmpty());
+        assertThat(meterRegistry.timer("pdf.render").count()).isEqualTo(6);
+        assertThat(meterRegistry.timer("pdf.render.wait").count()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("El calentamiento corre un render por hilo sin contar como reporte")
+    void warmsUpPool() {
+        pdfGenerator.warmUp();
+
+        await().atMost(Duration.ofSeconds(30)).until(() -> meterRegistry.get("pdf.render.queued").gauge().value() == 0);
+        pdfGenerator.generatePdf(HTML);
+        assertThat(meterRegistry.timer("pdf.render").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Un HTML inválido se informa como error de generación")
+    void invalidHtmlFails() {
+        assertThatThrownBy(() -> pdfGenerator.generatePdf("<html><body><p>sin cerrar"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Error al generar PDF");
+    }
+
+    @Test
+    @DisplayName("En modo memoria el adjunto no usa archivos")
+    void memoryAttachment() throws Exception {
+        PdfAttachment attachment = pdfGenerator.generateAttachment(HTML);
+
+        assertThat(attachment.isOnDisk()).isFalse();
+        assertThat(header(attachment)).isEqualTo("%PDF-");
+        assertThat(attachment.dataSource().getContentType()).isEqualTo("application/pdf");
+    }
+
+    @Test
+    @DisplayName("En modo archivo el PDF se escribe a disco y se borra con el último release")
+    void fileAttachmentDeletedOnLastRelease(@TempDir Path tempDir) throws Exception {
+        PdfGenerator filePdfGenerator = new PdfGenerator(1, Duration.ofSeconds(30), false, "", "file",
+                tempDir.toString(), 64 * 1024, meterRegistry);
+        try {
+            PdfAttachment attachment = filePdfGenerator.generateAttachment(HTML);
+
+            assertThat(attachment.isOnDisk()).isTrue();
+            assertThat(attachment.size()).isPositive();
+            assertThat(header(attachment)).isEqualTo("%PDF-");
+            assertThat(attachment.dataSource().getContentType()).isEqualTo("application/pdf");
+            assertThat(files(tempDir)).isEqualTo(1);
+
+            attachment.retain(2);
+            attachment.release();
+            attachment.release();
+            assertThat(files(tempDir)).isEqualTo(1);
+            attachment.release();
+            assertThat(files(tempDir)).isZero();
+        } finally {
+            filePdfGenerator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Si el render a disco falla no quedan archivos temporales")
+    void failedFileRenderLeavesNoFile(@TempDir Path tempDir) throws Exception {
+        PdfGenerator filePdfGenerator = new PdfGenerator(1, Duration.ofSeconds(30), false, "", "file",
+                tempDir.toString(), 64 * 1024, meterRegistry);
+        try {
+            assertThatThrownBy(() -> filePdfGenerator.generateAttachment("<html><body><p>sin cerrar"))
+                    .hasMessage("Error al generar PDF");
+            assertThat(files(tempDir)).isZero();
+        } finally {
+            filePdfGenerator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Un render a disco que supera el plazo borra su archivo al terminar")
+    void timedOutFileRenderLeavesNoFile(@TempDir Path tempDir) throws Exception {
+        PdfGenerator filePdfGenerator = new PdfGenerator(1, Duration.ofMillis(200), false, "", "file",
+                tempDir.toString(), 64 * 1024, meterRegistry);
+        try {
+            assertThatThrownBy(() -> filePdfGenerator.generateAttachment(longReport()))
+                    .hasMessage("Error al generar PDF");
+
+            // El worker sigue renderizando tras el plazo; al terminar debe descartar su archivo
+            await().atMost(Duration.ofSeconds(60)).until(() -> meterRegistry.timer("pdf.render").count() == 1);
+            await().atMost(Duration.ofSeconds(5)).until(() -> files(tempDir) == 0);
+        } finally {
+            filePdfGenerator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Un modo de adjunto desconocido se rechaza al arrancar")
+    void rejectsUnknownMode() {
+        assertThatThrownBy(() -> new PdfGenerator(1, Duration.ofSeconds(30), false, "", "s3", "", 0, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String longReport() {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            rows.append("<tr><td>OREO_").append(i).append("</td><td>").append(i).append("</td></tr>");
+        }
+        return "<!DOCTYPE html><html><head><meta charset='UTF-8'/></head><body><table>" + rows + "</table></body></html>";
+    }
+
+    private static String header(PdfAttachment attachment) throws Exception {
+        try (InputStream in = attachment.dataSource().getInputStream()) {
+            return new String(in.readNBytes(5), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static long files(Path dir) throws Exception {
+        try (var listing = Files.list(dir)) {
+            return listing.count();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo.service;
+
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.service.mail.PdfAttachment;
+import com.example.demo.service.mail.RenderedReport;
+import com.example.demo.service.summary.ReportCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReportCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ReportCoalescer(meterRegistry);
+    }
+
+    private ReportRequestedEvent event(String requestId, String branch, String emailTo) {
+        return ReportRequestedEvent.builder()
+                .requestId(requestId)
+                .branch(branch)
+                .from(LocalDate.of(2025, 9, 1))
+                .to(LocalDate.of(2025, 9, 7))
+                .emailTo(emailTo)
+                .premium(true)
+                .attachPdf(true)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Solicitudes idénticas simultáneas generan el reporte una sola vez")
+    void identicalConcurrentRequestsRenderOnce() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<RenderedReport>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.render(event("r0", "Miraflores", "a@oreo.com"), () -> {
+                renders.incrementAndGet();
+                leaderStarted.countDown();
+                await(finish);
+                return RenderedReport.builder().requestId("r0").subject("Reporte").build();
+            })));
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < 5; i++) {
+                // Sucursal con distinto casing: misma clave normalizada
+                ReportRequestedEvent follower = event("r" + i, "MIRAFLORES", "user" + i + "@oreo.com");
+                results.add(pool.submit(() -> coalescer.render(follower, () -> {
+                    renders.incrementAndGet();
+                    return RenderedReport.builder().build();
+                })));
+            }
+            while (meterRegistry.get("reports.coalesced").counter().count() < 4) {
+                Thread.sleep(10);
+            }
+            finish.countDown();
+
+            for (Future<RenderedReport> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).getRequestId()).isEqualTo("r0");
+            }
+            assertThat(renders).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Un error del reporte en curso se propaga a quienes lo esperaban")
+    void failurePropagatesToFollowers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<RenderedReport> leader = pool.submit(() -> coalescer.render(event("r0", "Miraflores", "a@oreo.com"), () -> {
+                leaderStarted.countDown();
+                await(finish);
+                throw new IllegalStateException("LLM caído");
+            }));
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<RenderedReport> follower = pool.submit(() -> coalescer.render(event("r1", "Miraflores", "b@oreo.com"),
+                    () -> RenderedReport.builder().build()));
+            while (meterRegistry.get("reports.coalesced").counter().count() < 1) {
+                Thread.sleep(10);
+            }
+            finish.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Parámetros distintos o solicitudes ya terminadas no se agrupan")
+    void differentOrFinishedRequestsAreNotCoalesced() {
+        AtomicInteger renders = new AtomicInteger();
+        coalescer.render(event("r0", "Miraflores", "a@oreo.com"), () -> {
+            renders.incrementAndGet();
+            return RenderedReport.builder().build();
+        });
+        coalescer.render(event("r1", "Miraflores", "a@oreo.com"), () -> {
+            renders.incrementAndGet();
+            return RenderedReport.builder().build();
+        });
+        coalescer.render(event("r2", "San Isidro", "a@oreo.com"), () -> {
+            renders.incrementAndGet();
+            return RenderedReport.builder().build();
+        });
+
+        assertThat(renders).hasValue(3);
+        assertThat(meterRegistry.get("reports.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("El PDF compartido en disco se borra recién cuando todos los destinatarios lo liberan")
+    void sharedAttachmentReleasedByEveryRecipient(@TempDir Path tempDir) throws Exception {
+        Path file = Files.write(tempDir.resolve("reporte.pdf"), "%PDF-".getBytes(StandardCharsets.US_ASCII));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<RenderedReport>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.render(event("r0", "Miraflores", "a@oreo.com"), () -> {
+                leaderStarted.countDown();
+                await(finish);
+                return RenderedReport.builder().requestId("r0").pdf(onDisk(file)).build();
+            })));
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < 3; i++) {
+                ReportRequestedEvent follower = event("r" + i, "Miraflores", "user" + i + "@oreo.com");
+                results.add(pool.submit(() -> coalescer.render(follower, () -> RenderedReport.builder().build())));
+            }
+            while (meterRegistry.get("reports.coalesced").counter().count() < 2) {
+                Thread.sleep(10);
+            }
+            finish.countDown();
+
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(file).exists();
+                results.get(i).get(5, TimeUnit.SECONDS).release();
+            }
+            assertThat(file).doesNotExist();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static PdfAttachment onDisk(Path file) {
+        try {
+            return PdfAttachment.onDisk(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
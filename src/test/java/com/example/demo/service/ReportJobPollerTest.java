@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ReportJob;
+import com.example.demo.entity.ReportJobStatus;
+import com.example.demo.event.ReportRequestedListener;
+import com.example.demo.repository.ReportJobRepository;
+import com.example.demo.service.summary.ReportAdmission;
+import com.example.demo.service.summary.ReportJobPoller;
+import com.example.demo.service.summary.ReportJobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobPollerTest {
+
+    @Mock
+    private ReportJobRepository jobRepository;
+    @Mock
+    private ReportRequestedListener listener;
+    @Mock
+    private AsyncTaskExecutor reportExecutor;
+
+    private ReportJob job;
+    private ReportAdmission admission;
+    private ReportJobPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        job = ReportJob.builder()
+                .requestId("req_1")
+                .status(ReportJobStatus.QUEUED)
+                .branch("Miraflores")
+                .from(LocalDate.of(2025, 9, 1))
+                .to(LocalDate.of(2025, 9, 7))
+                .emailTo("gerente@oreo.com")
+                .attempts(1)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+        lenient().when(jobRepository.lockQueued(any(), any())).thenReturn(List.of(job));
+        lenient().when(jobRepository.findForUpdate("req_1")).thenReturn(Optional.of(job));
+
+        admission = new ReportAdmission(1, new SimpleMeterRegistry());
+        poller = new ReportJobPoller(new ReportJobService(jobRepository), listener, admission, reportExecutor);
+        ReflectionTestUtils.setField(poller, "pickupDelay", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(poller, "batchSize", 10);
+        ReflectionTestUtils.setField(poller, "staleAfter", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(poller, "maxAttempts", 3);
+    }
+
+    @Test
+    @DisplayName("Un job rechazado por el executor vuelve a la cola sin gastar un intento")
+    void rejectedJobKeepsItsAttempts() {
+        doThrow(new TaskRejectedException("lleno")).when(reportExecutor).execute(any());
+
+        poller.poll();
+
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.QUEUED);
+        assertThat(job.getLockedBy()).isNull();
+        assertThat(job.getAttempts()).isEqualTo(1);
+        assertThat(admission.available()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Un job tomado sin permiso de admisión vuelve a la cola sin gastar un intento")
+    void unadmittedJobKeepsItsAttempts() {
+        // Otro reporte ocupa el permiso entre la consulta de disponibles y la toma
+        when(jobRepository.lockQueued(any(), any())).thenAnswer(invocation -> {
+            admission.tryAcquire();
+            return List.of(job);
+        });
+
+        poller.poll();
+
+        verify(reportExecutor, never()).execute(any());
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.QUEUED);
+        assertThat(job.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Un job que sí se ejecuta conserva el intento de la toma")
+    void dispatchedJobCountsTheAttempt() {
+        poller.poll();
+
+        verify(reportExecutor).execute(any());
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.AGGREGATING);
+        assertThat(job.getAttempts()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.event.ReportRequestedListener;
+import com.example.demo.service.mail.MailService;
+import com.example.demo.service.sales.SalesAggregationService;
+import com.example.demo.service.summary.LlmSummaryBatcher;
+import com.example.demo.service.summary.ReportAdmission;
+import com.example.demo.service.summary.ReportCoalescer;
+import com.example.demo.service.summary.ReportJobLease;
+import com.example.demo.service.summary.ReportJobService;
+import com.example.demo.service.summary.ReportResourceLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Carga del pipeline de reportes: cuántas llamadas al LLM llegan a estar en curso a la vez con el
+ * pool de 10 hilos de plataforma y con hilos virtuales limitados por semáforos de recurso. La
+ * comparación de throughput está en {@code benchmark.ReportPipelineBenchmark}.
+ */
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+class ReportPipelineLoadTest {
+
+    private static final int REPORTS = 120;
+    private static final int POOL_SIZE = 10;
+    private static final int LLM_LIMIT = 16;
+
+    @Mock
+    private SalesAggregationService aggregationService;
+
+    @Mock
+    private LlmSummaryBatcher summaryBatcher;
+
+    @Mock
+    private MailService mailService;
+
+    @Mock
+    private ReportJobService jobService;
+
+    private ReportAdmission admission;
+    private ReportRequestedListener listener;
+    private final AtomicInteger llmInFlight = new AtomicInteger();
+    private final AtomicInteger llmPeak = new AtomicInteger();
+    private CountDownLatch llmGate;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        admission = new ReportAdmission(REPORTS, registry);
+        ReportResourceLimiter limiter = new ReportResourceLimiter(8, LLM_LIMIT, 4, registry);
+        listener = new ReportRequestedListener(aggregationService, summaryBatcher, mailService, admission, limiter, jobService,
+                new ReportCoalescer(registry));
+
+        lenient().when(aggregationService.calculateAggregates(any(), any(), any()))
+                .thenReturn(SalesAggregates.builder().totalUnits(10).build());
+        // Cada llamada espera a que haya llmGate llamadas simultáneas: el pico se alcanza sin depender de tiempos
+        lenient().when(summaryBatcher.generateSummary(any(), any(), any(), any(), anyBoolean())).thenAnswer(inv -> {
+            llmPeak.accumulateAndGet(llmInFlight.incrementAndGet(), Math::max);
+            try {
+                llmGate.countDown();
+                assertThat(llmGate.await(10, TimeUnit.SECONDS)).isTrue();
+                return "resumen";
+            } finally {
+                llmInFlight.decrementAndGet();
+            }
+        });
+        lenient().when(jobService.claim(anyString()))
+                .thenAnswer(inv -> Optional.of(new ReportJobLease(inv.getArgument(0), "worker", 1)));
+        lenient().when(jobService.advance(any(), any())).thenReturn(true);
+        lenient().when(jobService.complete(any())).thenReturn(true);
+    }
+
+    private int llmPeak(AsyncTaskExecutor executor, int expectedPeak) throws InterruptedException {
+        llmGate = new CountDownLatch(expectedPeak);
+        llmPeak.set(0);
+        CountDownLatch done = new CountDownLatch(REPORTS);
+        for (int i = 0; i < REPORTS; i++) {
+            ReportRequestedEvent event = ReportRequestedEvent.builder()
+                    .requestId("req_" + i).branch("Sucursal " + i)
+                    .from(LocalDate.now().minusDays(6)).to(LocalDate.now())
+                    .emailTo("gerente@oreo.com").build();
+            admission.acquire();
+            executor.execute(() -> {
+                listener.handleReportRequest(event);
+                done.countDown();
+            });
+        }
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        assertThat(admission.inFlight()).isZero();
+        return llmPeak.get();
+    }
+
+    @Test
+    @DisplayName("Con hilos virtuales la concurrencia la acota el límite del LLM, no el tamaño del pool")
+    void virtualThreadsReachResourceLimit() throws Exception {
+        ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+        platform.setCorePoolSize(POOL_SIZE);
+        platform.setMaxPoolSize(POOL_SIZE);
+        platform.setQueueCapacity(REPORTS);
+        platform.initialize();
+
+        SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("report-");
+        virtual.setVirtualThreads(true);
+
+        try {
+            int platformPeak = llmPeak(platform, POOL_SIZE);
+            int virtualPeak = llmPeak(virtual, LLM_LIMIT);
+            log.info("Llamadas al LLM simultáneas -> plataforma({}): {} | virtuales: {}", POOL_SIZE, platformPeak, virtualPeak);
+
+            assertThat(platformPeak).isEqualTo(POOL_SIZE);
+            assertThat(virtualPeak).isEqualTo(LLM_LIMIT);
+        } finally {
+            platform.shutdown();
+            virtual.close();
+        }
+        verify(mailService, times(REPORTS * 2)).send(any(), anyString());
+        verify(jobService, times(REPORTS * 2)).complete(any());
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.entity.ReportJobStatus;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.event.ReportRequestedListener;
+import com.example.demo.service.mail.MailService;
+import com.example.demo.service.mail.RenderedReport;
+import com.example.demo.service.sales.SalesAggregationService;
+import com.example.demo.service.summary.LlmSummaryBatcher;
+import com.example.demo.service.summary.ReportAdmission;
+import com.example.demo.service.summary.ReportCoalescer;
+import com.example.demo.service.summary.ReportJobLease;
+import com.example.demo.service.summary.ReportJobService;
+import com.example.demo.service.summary.ReportResourceLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportRequestedListenerTest {
+
+    @Mock
+    private SalesAggregationService aggregationService;
+    @Mock
+    private LlmSummaryBatcher summaryBatcher;
+    @Mock
+    private MailService mailService;
+    @Mock
+    private ReportJobService jobService;
+
+    private SimpleMeterRegistry registry;
+    private ReportAdmission admission;
+    private ReportRequestedListener listener;
+    private final ReportJobLease lease = new ReportJobLease("req_1", "worker-a", 1);
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        admission = new ReportAdmission(10, registry);
+        listener = new ReportRequestedListener(aggregationService, summaryBatcher, mailService, admission,
+                new ReportResourceLimiter(8, 16, 4, registry), jobService, new ReportCoalescer(registry));
+
+        when(jobService.claim("req_1")).thenReturn(Optional.of(lease));
+        when(aggregationService.calculateAggregates(any(), any(), any()))
+                .thenReturn(SalesAggregates.builder().totalUnits(10).build());
+        when(summaryBatcher.generateSummary(any(), any(), any(), any(), anyBoolean())).thenReturn("resumen");
+        lenient().when(mailService.render(any(), any(), anyString())).thenReturn(RenderedReport.builder().requestId("req_1").build());
+        admission.acquire();
+    }
+
+    private static ReportRequestedEvent event() {
+        return event("req_1", "gerente@oreo.com");
+    }
+
+    private static ReportRequestedEvent event(String requestId, String emailTo) {
+        return ReportRequestedEvent.builder()
+                .requestId(requestId)
+                .branch("Miraflores")
+                .from(LocalDate.of(2025, 9, 1))
+                .to(LocalDate.of(2025, 9, 7))
+                .emailTo(emailTo)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Con la toma vigente el reporte se envía y el job se cierra con esa toma")
+    void sendsWhileLeaseHolds() {
+        when(jobService.advance(eq(lease), any())).thenReturn(true);
+        when(jobService.complete(lease)).thenReturn(true);
+
+        listener.handleReportRequest(event());
+
+        verify(mailService).send(any(), eq("req_1"));
+        verify(jobService).complete(lease);
+        verify(jobService).untrack(lease);
+        assertThat(admission.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Si el job pasó a otro worker no se envía el correo ni se marca como fallido")
+    void abandonsWhenLeaseIsLost() {
+        when(jobService.advance(eq(lease), any())).thenReturn(true);
+        when(jobService.advance(lease, ReportJobStatus.SENDING)).thenReturn(false);
+
+        listener.handleReportRequest(event());
+
+        verify(mailService, never()).send(any(), anyString());
+        verify(mailService, never()).buildSummaryEmail(any(), anyString(), anyString());
+        verify(jobService, never()).complete(any());
+        verify(jobService, never()).fail(any(), any());
+        verify(jobService).untrack(lease);
+        assertThat(admission.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Un error con la toma ya perdida no envía la notificación de fallo")
+    void skipsFailureNoticeWhenLeaseIsLost() {
+        when(summaryBatcher.generateSummary(any(), any(), any(), any(), anyBoolean()))
+                .thenThrow(new IllegalStateException("LLM caído"));
+        when(jobService.fail(lease, "LLM caído")).thenReturn(false);
+
+        listener.handleReportRequest(event());
+
+        verify(mailService, never()).sendFailureNotification(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Un seguidor agrupado avanza su propio job y envía con su requestId")
+    void followerAdvancesItsOwnJob() throws Exception {
+        ReportJobLease followerLease = new ReportJobLease("req_2", "worker-a", 1);
+        when(jobService.claim("req_2")).thenReturn(Optional.of(followerLease));
+        when(jobService.advance(any(), any())).thenReturn(true);
+        when(jobService.complete(any())).thenReturn(true);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        when(aggregationService.calculateAggregates(any(), any(), any())).thenAnswer(inv -> {
+            leaderStarted.countDown();
+            assertThat(finish.await(5, TimeUnit.SECONDS)).isTrue();
+            return SalesAggregates.builder().totalUnits(10).build();
+        });
+        admission.acquire();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader = pool.submit(() -> listener.handleReportRequest(event()));
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<?> follower = pool.submit(() -> listener.handleReportRequest(event("req_2", "otro@oreo.com")));
+            while (registry.get("reports.coalesced").counter().count() < 1) {
+                Thread.sleep(10);
+            }
+            finish.countDown();
+            leader.get(5, TimeUnit.SECONDS);
+            follower.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(aggregationService, times(1)).calculateAggregates(any(), any(), any());
+        verify(jobService, never()).advance(followerLease, ReportJobStatus.SUMMARIZING);
+        verify(jobService).advance(followerLease, ReportJobStatus.RENDERING);
+        verify(jobService).advance(followerLease, ReportJobStatus.SENDING);
+        verify(jobService).complete(followerLease);
+        verify(mailService).buildSummaryEmail(any(), eq("otro@oreo.com"), eq("req_2"));
+        verify(mailService).send(any(), eq("req_2"));
+        assertThat(admission.inFlight()).isZero();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.entity.Sale;
+import com.example.demo.service.sales.SalesAggregatesCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesAggregatesCacheTest {
+
+    private static final LocalDate WEEK_START = LocalDate.of(2025, 9, 1);
+    private static final LocalDate WEEK_END = LocalDate.of(2025, 9, 7);
+
+    private SimpleMeterRegistry meterRegistry;
+    private SalesAggregatesCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SalesAggregatesCache(100, Duration.ofMinutes(5), meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    private SalesAggregates load(LocalDate from, LocalDate to, String branchKey) {
+        return cache.get(from, to, branchKey, () -> {
+            loads.incrementAndGet();
+            return SalesAggregates.builder().totalUnits(1).build();
+        });
+    }
+
+    private Sale sale(String branch, LocalDateTime soldAt) {
+        Sale sale = Sale.builder().id("s1").sku("OREO").units(1).price(1.0).soldAt(soldAt).build();
+        sale.setBranch(branch);
+        return sale;
+    }
+
+    @Test
+    @DisplayName("Solo se invalidan las entradas cuyo rango y sucursal incluyen la venta")
+    void evictsOnlyOverlappingEntries() {
+        load(WEEK_START, WEEK_END, "miraflores");
+        load(WEEK_START, WEEK_END, "san isidro");
+        load(WEEK_START, WEEK_END, null);
+        load(WEEK_START.plusWeeks(1), WEEK_END.plusWeeks(1), "miraflores");
+        assertThat(loads).hasValue(4);
+
+        cache.evictFor(sale("Miraflores", LocalDateTime.of(2025, 9, 3, 12, 0)));
+
+        load(WEEK_START, WEEK_END, "miraflores");     // invalidada
+        load(WEEK_START, WEEK_END, null);             // invalidada: agrega todas las sucursales
+        load(WEEK_START, WEEK_END, "san isidro");     // sigue en caché
+        load(WEEK_START.plusWeeks(1), WEEK_END.plusWeeks(1), "miraflores"); // otro rango
+        assertThat(loads).hasValue(6);
+    }
+
+    @Test
+    @DisplayName("Dentro de una transacción la invalidación espera al commit")
+    void evictsAfterCommit() {
+        load(WEEK_START, WEEK_END, "miraflores");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evictFor(sale("Miraflores", LocalDateTime.of(2025, 9, 3, 12, 0)));
+            load(WEEK_START, WEEK_END, "miraflores");
+            assertThat(loads).hasValue(1);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        load(WEEK_START, WEEK_END, "miraflores");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Una carga que termina después de una invalidación no queda en caché")
+    void discardsLoadOverlappingEviction() {
+        SalesAggregates stale = cache.get(WEEK_START, WEEK_END, "miraflores", () -> {
+            loads.incrementAndGet();
+            // La venta se confirma mientras la consulta sigue en curso
+            cache.evictFor(sale("Miraflores", LocalDateTime.of(2025, 9, 3, 12, 0)));
+            return SalesAggregates.builder().totalUnits(1).build();
+        });
+        assertThat(stale.getTotalUnits()).isEqualTo(1);
+
+        load(WEEK_START, WEEK_END, "miraflores");
+        load(WEEK_START, WEEK_END, "miraflores");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Publica métricas de aciertos y fallos")
+    void recordsHitMissMetrics() {
+        load(WEEK_START, WEEK_END, "miraflores");
+        load(WEEK_START, WEEK_END, "miraflores");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "salesAggregates").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "salesAggregates").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+}
@@ -1,22 +1,37 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.sales.SalesAggregates;
+import com.example.demo.dto.sales.SalesTotals;
+import com.example.demo.dto.sales.UnitsByKey;
 import com.example.demo.entity.Sale;
+import com.example.demo.repository.DailySalesRollupRepository;
 import com.example.demo.repository.SalesRepository;
+import com.example.demo.service.sales.SalesAggregatesCache;
 import com.example.demo.service.sales.SalesAggregationService;
+import com.example.demo.service.sales.SalesRollupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +40,15 @@ class SalesAggregationServiceTest {
     @Mock
     private SalesRepository salesRepository;
 
+    @Mock
+    private DailySalesRollupRepository rollupRepository;
+
+    @Mock
+    private SalesRollupService rollupService;
+
+    @Spy
+    private SalesAggregatesCache aggregatesCache = new SalesAggregatesCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
     @InjectMocks
     private SalesAggregationService salesAggregationService;
 
@@ -41,6 +65,35 @@ class SalesAggregationServiceTest {
                 .build();
     }
 
+    // Simula las agregaciones SQL del repositorio (filtro de sucursal + GROUP BY) sobre una lista en memoria
+    private void stubRepository(List<Sale> sales) {
+        when(salesRepository.sumTotals(any(), any(), any())).thenAnswer(inv -> {
+            List<Sale> rows = filter(sales, inv.getArgument(2));
+            return rows.isEmpty()
+                    ? new SalesTotals(null, null)
+                    : new SalesTotals((long) rows.stream().mapToInt(Sale::getUnits).sum(),
+                    rows.stream().mapToLong(s -> Math.round(s.getUnits() * s.getPrice() * 100)).sum() / 100.0);
+        });
+        when(salesRepository.sumUnitsBySku(any(), any(), any()))
+                .thenAnswer(inv -> group(filter(sales, inv.getArgument(2)), Sale::getSku));
+        when(salesRepository.sumUnitsByBranch(any(), any(), any()))
+                .thenAnswer(inv -> group(filter(sales, inv.getArgument(2)), Sale::getBranch));
+    }
+
+    private static List<Sale> filter(List<Sale> sales, String branchKey) {
+        return sales.stream()
+                .filter(s -> branchKey == null || s.getBranch().toLowerCase().equals(branchKey))
+                .toList();
+    }
+
+    private static List<UnitsByKey> group(List<Sale> sales, Function<Sale, String> key) {
+        return sales.stream()
+                .collect(Collectors.groupingBy(key, Collectors.summingLong(Sale::getUnits)))
+                .entrySet().stream()
+                .map(e -> new UnitsByKey(e.getKey(), e.getValue()))
+                .toList();
+    }
+
     // 1️⃣ Dataset válido
     @Test
     @DisplayName("Debe calcular correctamente totalUnits, totalRevenue, topSku y topBranch con datos válidos")
@@ -51,7 +104,7 @@ class SalesAggregationServiceTest {
                 createSale("OREO_CLASSIC", 15, 1.99, "Miraflores", LocalDateTime.now())
         );
 
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(mockSales);
+        stubRepository(mockSales);
 
         SalesAggregates result = salesAggregationService.calculateAggregates(
                 LocalDate.now().minusDays(7), LocalDate.now(), null
@@ -68,7 +121,7 @@ class SalesAggregationServiceTest {
     @Test
     @DisplayName("Debe retornar 0 y null cuando no hay ventas en el rango")
     void shouldHandleEmptySalesList() {
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(List.of());
+        stubRepository(List.of());
 
         SalesAggregates result = salesAggregationService.calculateAggregates(
                 LocalDate.now().minusDays(7), LocalDate.now(), null
@@ -90,12 +143,15 @@ class SalesAggregationServiceTest {
                 createSale("OREO_MEGA", 8, 1.50, "Miraflores", LocalDateTime.now())
         );
 
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(mockSales);
+        stubRepository(mockSales);
 
         SalesAggregates result = salesAggregationService.calculateAggregates(
                 LocalDate.now().minusDays(7), LocalDate.now(), "Miraflores"
         );
 
+        // El filtro viaja normalizado a la consulta
+        verify(salesRepository).sumTotals(any(), any(), eq("miraflores"));
+
         // Solo Miraflores: 18 unidades, 31.9 totalRevenue
         assertThat(result.getTotalUnits()).isEqualTo(18);
         assertThat(result.getTotalRevenue()).isEqualTo(31.9);
@@ -115,7 +171,7 @@ class SalesAggregationServiceTest {
                         LocalDateTime.of(2025, 9, 3, 10, 0))
         );
 
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(repoFiltered);
+        stubRepository(repoFiltered);
 
         SalesAggregates result = salesAggregationService.calculateAggregates(from, to, null);
 
@@ -133,7 +189,7 @@ class SalesAggregationServiceTest {
                 createSale("OREO_CLASSIC", 10, 1.99, "Miraflores", LocalDateTime.now()),
                 createSale("OREO_DOUBLE", 10, 2.49, "Miraflores", LocalDateTime.now())
         );
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(mockSales);
+        stubRepository(mockSales);
 
         SalesAggregates result = salesAggregationService.calculateAggregates(
                 LocalDate.now().minusDays(7), LocalDate.now(), null
@@ -142,4 +198,55 @@ class SalesAggregationServiceTest {
         // Por .max() con thenComparing(key ascendente) → gana "OREO_DOUBLE"
         assertThat(result.getTopSku()).isEqualTo("OREO_DOUBLE");
     }
+
+    // 6️⃣ Lectura desde el rollup diario
+    @Test
+    @DisplayName("Con el rollup habilitado, consulta daily_sales_rollup por días completos")
+    void shouldReadFromDailyRollupWhenEnabled() {
+        ReflectionTestUtils.setField(salesAggregationService, "useRollup", true);
+        when(rollupService.isReady()).thenReturn(true);
+        LocalDate from = LocalDate.of(2025, 9, 1);
+        LocalDate to = LocalDate.of(2025, 9, 7);
+
+        when(rollupRepository.sumTotals(from, to, "miraflores")).thenReturn(new SalesTotals(45L, 89.555));
+        when(rollupRepository.sumUnitsBySku(from, to, "miraflores")).thenReturn(List.of(
+                new UnitsByKey("OREO_CLASSIC", 20L), new UnitsByKey("OREO_DOUBLE", 25L)));
+        when(rollupRepository.sumUnitsByBranch(from, to, "miraflores")).thenReturn(List.of(
+                new UnitsByKey("Miraflores", 45L)));
+
+        SalesAggregates result = salesAggregationService.calculateAggregates(from, to, "Miraflores");
+
+        assertThat(result.getTotalUnits()).isEqualTo(45);
+        assertThat(result.getTotalRevenue()).isEqualTo(89.56);
+        assertThat(result.getTopSku()).isEqualTo("OREO_DOUBLE");
+        assertThat(result.getTopBranch()).isEqualTo("Miraflores");
+        verifyNoInteractions(salesRepository);
+    }
+
+    @Test
+    @DisplayName("Mientras el rollup no está reconstruido, los agregados salen de la tabla de ventas")
+    void shouldReadFromSalesUntilRollupIsReady() {
+        ReflectionTestUtils.setField(salesAggregationService, "useRollup", true);
+        when(rollupService.isReady()).thenReturn(false);
+        stubRepository(List.of(createSale("OREO_CLASSIC", 10, 1.99, "Miraflores", LocalDateTime.now())));
+
+        SalesAggregates result = salesAggregationService.calculateAggregates(null, null, null);
+
+        assertThat(result.getTotalUnits()).isEqualTo(10);
+        verifyNoInteractions(rollupRepository);
+    }
+
+    // 7️⃣ Caché de agregados
+    @Test
+    @DisplayName("La misma consulta (rango + sucursal normalizada) se sirve desde la caché")
+    void shouldServeRepeatedQueriesFromCache() {
+        stubRepository(List.of(createSale("OREO_CLASSIC", 10, 1.99, "Miraflores", LocalDateTime.now())));
+        LocalDate from = LocalDate.now().minusDays(6);
+
+        SalesAggregates first = salesAggregationService.calculateAggregates(from, LocalDate.now(), "Miraflores");
+        SalesAggregates second = salesAggregationService.calculateAggregates(null, null, "MIRAFLORES");
+
+        assertThat(second).isEqualTo(first);
+        verify(salesRepository, times(1)).sumTotals(any(), any(), eq("miraflores"));
+    }
 }
@@ -0,0 +1,113 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.ExportFormat;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.Sale;
+import com.example.demo.entity.User;
+import com.example.demo.repository.SalesRepository;
+import com.example.demo.service.sales.SalesExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesExportServiceTest {
+
+    @Mock
+    private SalesRepository salesRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private SalesExportService exportService;
+
+    private User centralUser;
+    private User branchUser;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new SalesExportService(salesRepository, entityManager, new ObjectMapper().findAndRegisterModules());
+
+        centralUser = new User();
+        centralUser.setUsername("oreo.admin");
+        centralUser.setRole(Role.CENTRAL);
+
+        branchUser = new User();
+        branchUser.setUsername("mira.user");
+        branchUser.setRole(Role.BRANCH);
+        branchUser.setBranch("Miraflores");
+    }
+
+    private Sale sale(String id, String sku) {
+        Sale sale = Sale.builder()
+                .id(id)
+                .sku(sku)
+                .units(2)
+                .price(10.5)
+                .soldAt(LocalDateTime.of(2025, 1, 10, 9, 30))
+                .createdBy("oreo.admin")
+                .build();
+        sale.setBranch("Miraflores");
+        return sale;
+    }
+
+    @Test
+    @DisplayName("CSV: cabecera, escape de comillas/comas y detach por fila")
+    void exportCsv() throws Exception {
+        Sale plain = sale("s1", "OREO-001");
+        Sale quoted = sale("s2", "OREO \"mini\", 12u");
+        when(salesRepository.streamByDateRange(any(), any(), isNull())).thenReturn(Stream.of(plain, quoted));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), null,
+                ExportFormat.CSV, centralUser, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).isEqualTo("id,sku,units,price,branch,soldAt,createdBy");
+        assertThat(lines[1]).isEqualTo("s1,OREO-001,2,10.5,Miraflores,2025-01-10T09:30,oreo.admin");
+        assertThat(lines[2]).startsWith("s2,\"OREO \"\"mini\"\", 12u\",2,");
+        verify(entityManager).detach(plain);
+        verify(entityManager).detach(quoted);
+    }
+
+    @Test
+    @DisplayName("NDJSON: un objeto por línea y BRANCH restringido a su sucursal")
+    void exportNdjsonBranchUser() throws Exception {
+        when(salesRepository.streamByDateRange(any(), any(), eq("miraflores"))).thenReturn(Stream.of(sale("s1", "OREO-001")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(null, null, "San Isidro", ExportFormat.NDJSON, branchUser, out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertThat(body.lines()).hasSize(1);
+        assertThat(body).contains("\"id\":\"s1\"").contains("\"sku\":\"OREO-001\"");
+        verify(salesRepository).streamByDateRange(any(), any(), eq("miraflores"));
+    }
+
+    @Test
+    @DisplayName("Formato desconocido → IllegalArgumentException")
+    void unknownFormat() {
+        assertThatThrownBy(() -> ExportFormat.from("xlsx"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(ExportFormat.from("NDJSON")).isEqualTo(ExportFormat.NDJSON);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.sales.SaleBatchResponse;
+import com.example.demo.dto.sales.SaleIngestProgress;
+import com.example.demo.dto.sales.SaleRequest;
+import com.example.demo.dto.sales.SaleRowError;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.SalesRepository;
+import com.example.demo.service.sales.SalesIngestionService;
+import com.example.demo.service.sales.SalesAggregatesCache;
+import com.example.demo.service.sales.SalesRollupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesIngestionServiceTest {
+
+    @Mock
+    private SalesRepository salesRepository;
+
+    @Mock
+    private SalesRollupService rollupService;
+
+    @Mock
+    private SalesAggregatesCache aggregatesCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private SalesIngestionService ingestionService;
+
+    private User centralUser;
+    private User branchUser;
+
+    @BeforeEach
+    void setUp() {
+        ingestionService = new SalesIngestionService(salesRepository, rollupService, aggregatesCache,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(transactionManager), entityManager,
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(ingestionService, "chunkSize", 2);
+        ReflectionTestUtils.setField(ingestionService, "maxBatchRows", 100);
+
+        centralUser = new User();
+        centralUser.setUsername("oreo.admin");
+        centralUser.setRole(Role.CENTRAL);
+
+        branchUser = new User();
+        branchUser.setUsername("mira.user");
+        branchUser.setRole(Role.BRANCH);
+        branchUser.setBranch("Miraflores");
+    }
+
+    private SaleRequest request(String sku, int units, String branch) {
+        return new SaleRequest(sku, units, 1.99, branch, LocalDateTime.of(2025, 9, 1, 10, 0));
+    }
+
+    @Test
+    @DisplayName("Devuelve errores por fila sin descartar las filas válidas")
+    void reportsPerRowErrors() {
+        List<SaleRequest> rows = new ArrayList<>();
+        rows.add(request("OREO_CLASSIC", 10, "Miraflores"));
+        rows.add(request("", 0, "Miraflores"));
+        rows.add(request("OREO_DOUBLE", 5, "San Isidro"));
+        rows.add(null);
+
+        SaleBatchResponse result = ingestionService.ingestBatch(rows, branchUser);
+
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(SaleRowError::getRow).containsExactly(2L, 3L, 4L);
+        assertThat(result.getErrors().get(0).getDetails()).containsKeys("sku", "units");
+        assertThat(result.getErrors().get(1).getMessage()).contains("otra sucursal");
+    }
+
+    @Test
+    @DisplayName("Persiste en bloques del tamaño configurado, uno por transacción")
+    void persistsInChunks() {
+        List<SaleRequest> rows = List.of(
+                request("A", 1, "Miraflores"), request("B", 1, "Miraflores"),
+                request("C", 1, "Miraflores"), request("D", 1, "Miraflores"),
+                request("E", 1, "Miraflores"));
+
+        SaleBatchResponse result = ingestionService.ingestBatch(rows, centralUser);
+
+        assertThat(result.getInserted()).isEqualTo(5);
+        verify(salesRepository, times(3)).saveAll(anyList());
+        verify(rollupService, times(3)).addAll(anyList());
+        verify(entityManager, times(3)).clear();
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Si un bloque falla, solo sus filas se marcan como rechazadas")
+    void failedChunkOnlyRejectsItsRows() {
+        when(salesRepository.saveAll(anyList()))
+                .thenReturn(List.of())
+                .thenThrow(new DataIntegrityViolationException("duplicado"))
+                .thenReturn(List.of());
+
+        List<SaleRequest> rows = List.of(
+                request("A", 1, "Miraflores"), request("B", 1, "Miraflores"),
+                request("C", 1, "Miraflores"), request("D", 1, "Miraflores"),
+                request("E", 1, "Miraflores"));
+
+        SaleBatchResponse result = ingestionService.ingestBatch(rows, centralUser);
+
+        assertThat(result.getInserted()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(SaleRowError::getRow).containsExactly(3L, 4L);
+    }
+
+    @Test
+    @DisplayName("NDJSON: procesa línea por línea, reporta progreso por bloque y el número de línea rechazada")
+    void ndjsonStreamsProgressWithRejectedLineNumbers() throws Exception {
+        String body = String.join("\n",
+                "{\"sku\":\"A\",\"units\":1,\"price\":1.99,\"branch\":\"Miraflores\",\"soldAt\":\"2025-09-01T10:00:00Z\"}",
+                "{\"sku\":\"B\",\"units\":2,\"price\":1.99,\"branch\":\"Miraflores\",\"soldAt\":\"2025-09-01T11:00:00\"}",
+                "",
+                "{esto no es json",
+                "{\"sku\":\"C\",\"units\":0,\"price\":1.99,\"branch\":\"Miraflores\",\"soldAt\":\"2025-09-01T12:00:00\"}",
+                "{\"sku\":\"D\",\"units\":3,\"price\":1.99,\"branch\":\"Miraflores\",\"soldAt\":\"2025-09-01T13:00:00\"}");
+        List<SaleIngestProgress> progress = new ArrayList<>();
+
+        SaleIngestProgress done = ingestionService.ingestNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), centralUser, progress::add);
+
+        assertThat(done.getStatus()).isEqualTo("DONE");
+        assertThat(done.getReceived()).isEqualTo(5);
+        assertThat(done.getInserted()).isEqualTo(3);
+        assertThat(done.getRejected()).isEqualTo(2);
+        // bloque 1 persistido, tanda de 2 rechazos (= chunkSize), bloque final
+        assertThat(progress).hasSize(3);
+        assertThat(progress.get(0).getInserted()).isEqualTo(2);
+        assertThat(progress).flatExtracting(SaleIngestProgress::getErrors)
+                .extracting(SaleRowError::getRow)
+                .containsExactly(4L, 5L);
+        verify(salesRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("NDJSON: una línea gigante se rechaza como error de fila y las siguientes se siguen procesando")
+    void ndjsonRejectsOversizedLine() throws Exception {
+        String huge = "{\"sku\":\"" + "X".repeat(2_000_000) + "\",\"units\":1}";
+        String body = String.join("\n",
+                huge,
+                "{\"sku\":\"A\",\"units\":1,\"price\":1.99,\"branch\":\"Miraflores\",\"soldAt\":\"2025-09-01T10:00:00\"}",
+                "{\"sku\":\"B\",\"units\":2,\"price\":1.99,\"branch\":\"Miraflores\",\"soldAt\":\"2025-09-01T11:00:00\"}");
+        List<SaleIngestProgress> progress = new ArrayList<>();
+
+        SaleIngestProgress done = ingestionService.ingestNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), centralUser, progress::add);
+
+        assertThat(done.getReceived()).isEqualTo(3);
+        assertThat(done.getInserted()).isEqualTo(2);
+        assertThat(done.getRejected()).isEqualTo(1);
+        assertThat(progress).flatExtracting(SaleIngestProgress::getErrors)
+                .singleElement()
+                .satisfies(error -> {
+                    assertThat(error.getRow()).isEqualTo(1L);
+                    assertThat(error.getMessage()).startsWith("JSON inválido");
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.sales.SaleCursorPage;
 import com.example.demo.dto.sales.SaleRequest;
 import com.example.demo.dto.sales.SaleResponse;
 import com.example.demo.entity.Role;
@@ -7,16 +8,22 @@ import com.example.demo.entity.Sale;
 import com.example.demo.entity.User;
 import com.example.demo.exception.BusinessException;
 import com.example.demo.repository.SalesRepository;
+import com.example.demo.service.sales.SalesAggregatesCache;
+import com.example.demo.service.sales.SalesRollupService;
 import com.example.demo.service.sales.SalesService;
+import com.example.demo.util.SaleCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 
 import java.time.LocalDate;
@@ -26,7 +33,8 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class SalesServiceTest {
@@ -34,6 +42,12 @@ class SalesServiceTest {
     @Mock
     private SalesRepository salesRepository;
 
+    @Mock
+    private SalesRollupService rollupService;
+
+    @Mock
+    private SalesAggregatesCache aggregatesCache;
+
     @InjectMocks
     private SalesService salesService;
 
@@ -89,6 +103,7 @@ class SalesServiceTest {
         assertThat(resp.getSku()).isEqualTo("OREO_CLASSIC");
         assertThat(resp.getBranch()).isEqualTo("San Isidro");
         assertThat(resp.getUnits()).isEqualTo(10);
+        verify(rollupService).add(mockSale);
     }
 
     @Test
@@ -120,7 +135,8 @@ class SalesServiceTest {
                 // Intencionalmente NO incluimos la venta outRange aquí
         );
 
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(repoFiltered);
+        when(salesRepository.findBySoldAtBetweenAndBranchKey(any(), any(), eq("miraflores"), any()))
+                .thenReturn(new PageImpl<>(repoFiltered, PageRequest.of(0, 10), repoFiltered.size()));
 
         Page<SaleResponse> result = salesService.list(
                 from, to,
@@ -140,25 +156,92 @@ class SalesServiceTest {
     @DisplayName("Test 4: Filtrado por sucursal (BRANCH ve solo su branch)")
     void branchSeesOnlyOwnBranch() {
         List<Sale> mockSales = List.of(
-                sale("OREO_CLASSIC", 10, 1.99, "Miraflores", LocalDateTime.now(), "mira.user"),
-                sale("OREO_DOUBLE", 8, 2.49, "San Isidro", LocalDateTime.now(), "si.user")
+                sale("OREO_CLASSIC", 10, 1.99, "Miraflores", LocalDateTime.now(), "mira.user")
         );
 
-        when(salesRepository.findByDateRange(any(), any())).thenReturn(mockSales);
+        when(salesRepository.findBySoldAtBetweenAndBranchKey(any(), any(), any(), any()))
+                .thenReturn(new PageImpl<>(mockSales, PageRequest.of(0, 10), mockSales.size()));
 
+        // Aunque pida otra sucursal, un usuario BRANCH solo consulta la suya
         Page<SaleResponse> result = salesService.list(
                 LocalDate.now().minusDays(7),
                 LocalDate.now(),
-                null,
+                "San Isidro",
                 PageRequest.of(0, 10),
                 branchUser
         );
 
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(salesRepository).findBySoldAtBetweenAndBranchKey(any(), any(), eq("miraflores"), pageable.capture());
+        verify(salesRepository, never()).findByDateRange(any(), any());
+
+        assertThat(pageable.getValue().getSort().getOrderFor("soldAt").isDescending()).isTrue();
         assertThat(result.getContent())
                 .extracting(SaleResponse::getBranch)
                 .containsOnly("Miraflores");
     }
 
+    @Test
+    @DisplayName("Test 4b: CENTRAL sin filtro pagina en base de datos y devuelve el total del count")
+    void centralListPagesInDatabase() {
+        List<Sale> pageContent = List.of(
+                sale("OREO_CLASSIC", 10, 1.99, "Miraflores", LocalDateTime.now(), "mira.user")
+        );
+        when(salesRepository.findBySoldAtBetween(any(), any(), any()))
+                .thenReturn(new PageImpl<>(pageContent, PageRequest.of(3, 1), 120));
+
+        Page<SaleResponse> result = salesService.list(null, null, " ", PageRequest.of(3, 1), centralUser);
+
+        assertThat(result.getTotalElements()).isEqualTo(120);
+        assertThat(result.getNumber()).isEqualTo(3);
+        assertThat(result.getContent()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Test 4c: Cursor: pide size+1 filas y devuelve nextCursor con la clave de la última")
+    void scrollReturnsNextCursorFromLastRow() {
+        LocalDateTime t1 = LocalDateTime.of(2025, 9, 3, 10, 0);
+        LocalDateTime t2 = LocalDateTime.of(2025, 9, 2, 10, 0);
+        LocalDateTime t3 = LocalDateTime.of(2025, 9, 1, 10, 0);
+        List<Sale> window = List.of(
+                sale("OREO_A", 1, 1.0, "Miraflores", t1, "mira.user"),
+                sale("OREO_B", 1, 1.0, "Miraflores", t2, "mira.user"),
+                sale("OREO_C", 1, 1.0, "Miraflores", t3, "mira.user")
+        );
+        when(salesRepository.findWindow(any(), any(), any(), any(), any())).thenReturn(window);
+
+        SaleCursorPage page = salesService.scroll(LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7),
+                null, null, 2, centralUser);
+
+        ArgumentCaptor<Pageable> limit = ArgumentCaptor.forClass(Pageable.class);
+        verify(salesRepository).findWindow(any(), any(), any(), any(), limit.capture());
+        assertThat(limit.getValue().getPageSize()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(SaleResponse::getSku).containsExactly("OREO_A", "OREO_B");
+
+        SaleCursor next = SaleCursor.decode(page.getNextCursor());
+        assertThat(next.getSoldAt()).isEqualTo(t2);
+        assertThat(next.getId()).isEqualTo("id_OREO_B");
+    }
+
+    @Test
+    @DisplayName("Test 4d: Cursor corrupto se rechaza como argumento inválido")
+    void scrollRejectsInvalidCursor() {
+        assertThatThrownBy(() -> salesService.scroll(null, null, null, "no-es-un-cursor", 20, centralUser))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Cursor inválido");
+    }
+
+    @Test
+    @DisplayName("Test 4e: Un tamaño de página por encima del máximo se rechaza sin consultar")
+    void scrollRejectsOversizedPage() {
+        assertThatThrownBy(() -> salesService.scroll(null, null, null, null, Integer.MAX_VALUE, centralUser))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("entre 1 y 500");
+        assertThatThrownBy(() -> salesService.list(null, null, null, PageRequest.of(0, 501), centralUser))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(salesRepository);
+    }
+
     @Test
     @DisplayName("Test 5: Update mantiene restricciones por rol (BRANCH no puede cambiar sucursal)")
     void branchCannotChangeBranchOnUpdate() {
@@ -172,4 +255,26 @@ class SalesServiceTest {
                 .hasMessageContaining("No puede cambiar la sucursal de la venta")
                 .extracting("status").isEqualTo(HttpStatus.FORBIDDEN);
     }
+
+    @Test
+    @DisplayName("Test 6: Update mueve el delta del rollup con la venta anterior y la nueva")
+    void updateMovesRollupDelta() {
+        LocalDateTime oldSoldAt = LocalDateTime.of(2025, 9, 1, 10, 0);
+        LocalDateTime newSoldAt = LocalDateTime.of(2025, 9, 3, 10, 0);
+        Sale existing = sale("OREO_CLASSIC", 10, 1.99, "Miraflores", oldSoldAt, "mira.user");
+        when(salesRepository.findById("id1")).thenReturn(Optional.of(existing));
+        when(salesRepository.save(any(Sale.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        salesService.update("id1", request("OREO_CLASSIC", 12, 1.99, "San Isidro", newSoldAt), centralUser);
+
+        ArgumentCaptor<Sale> before = ArgumentCaptor.forClass(Sale.class);
+        ArgumentCaptor<Sale> after = ArgumentCaptor.forClass(Sale.class);
+        verify(rollupService).move(before.capture(), after.capture());
+        assertThat(before.getValue().getBranch()).isEqualTo("Miraflores");
+        assertThat(before.getValue().getSoldAt()).isEqualTo(oldSoldAt);
+        assertThat(before.getValue().getUnits()).isEqualTo(10);
+        assertThat(after.getValue().getBranch()).isEqualTo("San Isidro");
+        assertThat(after.getValue().getSoldAt()).isEqualTo(newSoldAt);
+        assertThat(after.getValue().getUnits()).isEqualTo(12);
+    }
 }
@@ -0,0 +1,178 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.summary.SalesSummaryResponse;
+import com.example.demo.dto.summary.WeeklyBatchSummaryRequest;
+import com.example.demo.dto.summary.WeeklySummaryRequest;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.event.ReportRequestedEvent;
+import com.example.demo.exception.BusinessException;
+import com.example.demo.service.summary.ReportAdmission;
+import com.example.demo.service.summary.ReportJobService;
+import com.example.demo.service.summary.SummaryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryServiceTest {
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    @Mock
+    private ReportJobService jobService;
+
+    private ReportAdmission reportAdmission;
+    private SummaryService summaryService;
+    private User centralUser;
+
+    @BeforeEach
+    void setUp() {
+        // Capacidad total: 1 en ejecución + 1 en cola
+        reportAdmission = new ReportAdmission(2, new SimpleMeterRegistry());
+        summaryService = new SummaryService(publisher, reportAdmission, jobService);
+
+        centralUser = new User();
+        centralUser.setUsername("oreo.admin");
+        centralUser.setEmail("admin@oreo.com");
+        centralUser.setRole(Role.CENTRAL);
+    }
+
+    private WeeklySummaryRequest request() {
+        return WeeklySummaryRequest.builder().branch("Miraflores").emailTo("gerente@oreo.com").build();
+    }
+
+    @Test
+    @DisplayName("Con el pool lleno responde 429 en lugar de aceptar y descartar el reporte")
+    void rejectsWhenAdmissionIsFull() {
+        summaryService.requestWeeklySummary(request(), centralUser);
+        summaryService.requestWeeklySummary(request(), centralUser);
+
+        assertThatThrownBy(() -> summaryService.requestWeeklySummary(request(), centralUser))
+                .isInstanceOf(BusinessException.class)
+                .extracting(ex -> ((BusinessException) ex).getStatus())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        verify(publisher, times(2)).publishEvent(any(ReportRequestedEvent.class));
+        verify(jobService, times(2)).enqueue(any(ReportRequestedEvent.class));
+
+        // Al terminar un reporte se libera un lugar
+        reportAdmission.release();
+        SalesSummaryResponse response = summaryService.requestWeeklySummary(request(), centralUser);
+        assertThat(response.getStatus()).isEqualTo("PROCESSING");
+    }
+
+    @Test
+    @DisplayName("Si el executor rechaza la tarea se devuelve 503 y se libera el permiso")
+    void releasesPermitWhenExecutorRejects() {
+        doThrow(new TaskRejectedException("lleno")).when(publisher).publishEvent(any(ReportRequestedEvent.class));
+
+        assertThatThrownBy(() -> summaryService.requestWeeklySummary(request(), centralUser))
+                .isInstanceOf(BusinessException.class)
+                .extracting(ex -> ((BusinessException) ex).getStatus())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(reportAdmission.inFlight()).isZero();
+        verify(jobService).failQueued(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("El lote de central crea un reporte por sucursal distinta")
+    void batchDispatchesOneReportPerBranch() {
+        WeeklyBatchSummaryRequest batch = WeeklyBatchSummaryRequest.builder()
+                .branches(List.of("Miraflores", "San Isidro", "miraflores "))
+                .emailTo("gerente@oreo.com")
+                .build();
+
+        List<SalesSummaryResponse> responses = summaryService.requestWeeklyBatch(batch, centralUser);
+
+        assertThat(responses).hasSize(2).extracting(SalesSummaryResponse::getRequestId).doesNotHaveDuplicates();
+        ArgumentCaptor<ReportRequestedEvent> events = ArgumentCaptor.forClass(ReportRequestedEvent.class);
+        verify(publisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(ReportRequestedEvent::getBranch)
+                .containsExactly("Miraflores", "San Isidro");
+        assertThat(reportAdmission.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Si el lote no entra completo no se despacha ninguna sucursal")
+    void batchIsAllOrNothing() {
+        WeeklyBatchSummaryRequest batch = WeeklyBatchSummaryRequest.builder()
+                .branches(List.of("Miraflores", "San Isidro", "Surco"))
+                .emailTo("gerente@oreo.com")
+                .build();
+
+        assertThatThrownBy(() -> summaryService.requestWeeklyBatch(batch, centralUser))
+                .isInstanceOf(BusinessException.class)
+                .extracting(ex -> ((BusinessException) ex).getStatus())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        verifyNoInteractions(publisher, jobService);
+        assertThat(reportAdmission.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Si el executor rechaza parte del lote, esos jobs quedan en cola para el poller y se liberan sus permisos")
+    void batchLeavesRejectedJobsQueued() {
+        doNothing().doThrow(new TaskRejectedException("lleno")).when(publisher).publishEvent(any(ReportRequestedEvent.class));
+        WeeklyBatchSummaryRequest batch = WeeklyBatchSummaryRequest.builder()
+                .branches(List.of("Miraflores", "San Isidro"))
+                .emailTo("gerente@oreo.com")
+                .build();
+
+        List<SalesSummaryResponse> responses = summaryService.requestWeeklyBatch(batch, centralUser);
+
+        assertThat(responses).hasSize(2).extracting(SalesSummaryResponse::getStatus).containsOnly("PROCESSING");
+        verify(jobService).enqueueAll(argThat(events -> events.size() == 2));
+        verify(jobService, never()).failQueued(anyString(), anyString());
+        // Queda solo el permiso de la sucursal que sí se despachó
+        assertThat(reportAdmission.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Si no se pueden persistir los jobs del lote no se despacha ninguno")
+    void batchPublishesNothingWhenEnqueueFails() {
+        doThrow(new IllegalStateException("db caída")).when(jobService).enqueueAll(anyList());
+        WeeklyBatchSummaryRequest batch = WeeklyBatchSummaryRequest.builder()
+                .branches(List.of("Miraflores", "San Isidro"))
+                .emailTo("gerente@oreo.com")
+                .build();
+
+        assertThatThrownBy(() -> summaryService.requestWeeklyBatch(batch, centralUser))
+                .isInstanceOf(IllegalStateException.class);
+        verifyNoInteractions(publisher);
+        assertThat(reportAdmission.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Un usuario de sucursal no puede pedir el lote")
+    void batchRequiresCentral() {
+        User branchUser = new User();
+        branchUser.setRole(Role.BRANCH);
+        branchUser.setBranch("Miraflores");
+        WeeklyBatchSummaryRequest batch = WeeklyBatchSummaryRequest.builder()
+                .branches(List.of("Miraflores"))
+                .emailTo("gerente@oreo.com")
+                .build();
+
+        assertThatThrownBy(() -> summaryService.requestWeeklyBatch(batch, branchUser))
+                .isInstanceOf(BusinessException.class)
+                .extracting(ex -> ((BusinessException) ex).getStatus())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+    }
+}
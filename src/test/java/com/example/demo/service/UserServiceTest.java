@@ -5,6 +5,8 @@ import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.exception.BusinessException;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.PrincipalCache;
+import com.example.demo.security.UserRevocationRegistry;
 import com.example.demo.service.user.UserService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -28,6 +30,12 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private UserRevocationRegistry revocationRegistry;
+
     @InjectMocks
     private UserService userService;
 
@@ -151,6 +159,8 @@ class UserServiceTest {
 
         verify(userRepository, times(1)).existsById(2L);
         verify(userRepository, times(1)).deleteById(2L);
+        verify(principalCache).evictUser(2L);
+        verify(revocationRegistry).revoke(2L);
         verifyNoMoreInteractions(userRepository);
     }
 }